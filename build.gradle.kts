@@ -1,5 +1,6 @@
 plugins {
     java
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "net.swofty"
@@ -20,6 +21,25 @@ dependencies {
     annotationProcessor("org.projectlombok:lombok:1.18.42")
 
     implementation("redis.clients:jedis:7.2.0")
+
+    testImplementation(platform("org.junit:junit-bom:5.11.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    // One file per version so results can be compared from one release to the next
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results-${project.version}.json"))
+    project.findProperty("jmhIncludes")?.let { includes.set(listOf(it.toString())) }
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -0,0 +1,55 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.RedisAPI;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An embedded {@link RespServer} with a {@link RedisAPI} instance connected to it, shared by the benchmarks.
+ */
+final class BenchmarkEnvironment implements AutoCloseable {
+    static final String FILTER_ID = "bench-node";
+
+    final RespServer server;
+    final RedisAPI api;
+
+    private BenchmarkEnvironment(RespServer server, RedisAPI api) {
+        this.server = server;
+        this.api = api;
+    }
+
+    /**
+     * Starts a server and connects a new instance to it, listeners are not started.
+     *
+     * @param binaryMode whether the instance publishes and receives in binary mode
+     */
+    static BenchmarkEnvironment start(boolean binaryMode) throws IOException {
+        RespServer server = new RespServer();
+        RedisAPI api = RedisAPI.generateInstance(server.getUri());
+        api.setFilterId(FILTER_ID);
+        api.setBinaryMode(binaryMode);
+        return new BenchmarkEnvironment(server, api);
+    }
+
+    /**
+     * Waits for a condition that depends on the subscriber being connected, such as a first message arriving.
+     *
+     * @param attempt ran repeatedly until it returns true
+     * @throws IllegalStateException if the condition is not met within the timeout
+     */
+    static void awaitReady(BooleanSupplier attempt, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!attempt.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new IllegalStateException("The benchmark environment did not become ready in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        api.shutdown();
+        server.close();
+    }
+}
@@ -0,0 +1,56 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.requests.DataRequest;
+import net.swofty.redisapi.api.requests.DataRequestResponder;
+import net.swofty.redisapi.api.requests.DataResponse;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip time of a {@link DataRequest} answered by a responder on the same instance, through the embedded server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataRequestBenchmark {
+    private static final String KEY = "bench-player-count";
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    @Param({"false", "true"})
+    public boolean binaryMode;
+
+    private BenchmarkEnvironment environment;
+    private JSONObject request;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        environment = BenchmarkEnvironment.start(binaryMode);
+        DataRequestResponder.create(KEY, data -> new JSONObject().put("players", 128).put("server", data.optString("server")));
+        environment.api.startListeners();
+
+        request = new JSONObject().put("server", "lobby-1");
+        BenchmarkEnvironment.awaitReady(() -> roundTrip().data() != null, Duration.ofSeconds(10));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public DataResponse roundTrip() {
+        return new DataRequest(BenchmarkEnvironment.FILTER_ID, KEY, request).await(TIMEOUT).join();
+    }
+}
@@ -0,0 +1,93 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.ChannelOptions;
+import net.swofty.redisapi.api.RedisChannel;
+import net.swofty.redisapi.events.EventRegistry;
+import net.swofty.redisapi.util.MessageEnvelope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency from a message reaching {@link EventRegistry} to its handler running, both for the dispatch alone and for
+ * the full trip through the embedded server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DispatchBenchmark {
+    private static final String CHANNEL = "bench-dispatch";
+
+    @Param({"false", "true"})
+    public boolean binaryMode;
+
+    private final AtomicLong handled = new AtomicLong();
+    private BenchmarkEnvironment environment;
+    private RedisChannel channel;
+    private String textMessage;
+    private byte[] channelBytes;
+    private byte[] binaryMessage;
+    private long expected;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        environment = BenchmarkEnvironment.start(binaryMode);
+        channel = environment.api.registerChannel(CHANNEL, event -> handled.incrementAndGet(), ChannelOptions.DEFAULT);
+        environment.api.startListeners();
+
+        String payload = "{\"uuid\":\"2f1e7c1a-8d0b-4e53-9a4c-54d1f0e7a6b1\",\"x\":12.5,\"y\":64,\"z\":-3.25}";
+        textMessage = "all;" + payload;
+        channelBytes = CHANNEL.getBytes(StandardCharsets.UTF_8);
+        binaryMessage = MessageEnvelope.encode("all".getBytes(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8));
+
+        BenchmarkEnvironment.awaitReady(() -> {
+            environment.api.publishMessage("all", channel, payload).join();
+            return handled.get() > 0;
+        }, Duration.ofSeconds(10));
+        awaitHandled(handled.get());
+        expected = handled.get();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.api.unregisterChannel(CHANNEL);
+        environment.close();
+    }
+
+    /**
+     * Hands a received message to the registry and waits for its handler to run on the dispatch executor.
+     */
+    @Benchmark
+    public void dispatch() {
+        if (binaryMode) EventRegistry.handleBinary(channelBytes, binaryMessage);
+        else EventRegistry.handleAll(CHANNEL, textMessage);
+        awaitHandled(++expected);
+    }
+
+    /**
+     * Publishes a message and waits for the subscriber of the same instance to hand it to its handler.
+     */
+    @Benchmark
+    public void publishToHandler() {
+        environment.api.publishMessage("all", channel, "{\"x\":1}");
+        awaitHandled(++expected);
+    }
+
+    private void awaitHandled(long count) {
+        while (handled.get() < count) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.kv.KeyValueStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a large set of keys through the {@link KeyValueStore}, one blocking GET at a time against coalesced
+ * asynchronous reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KeyValueBenchmark {
+    @Param({"10000"})
+    public int keyCount;
+
+    private BenchmarkEnvironment environment;
+    private KeyValueStore store;
+    private List<String> keys;
+
+    @Setup
+    public void setup() throws IOException {
+        environment = BenchmarkEnvironment.start(false);
+        store = environment.api.getKeyValueStore();
+
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < keyCount; i++) {
+            values.put("bench-player:" + i, "{\"coins\":" + i + "}");
+        }
+        store.setAllAsync(values).join();
+        keys = new ArrayList<>(values.keySet());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public int blockingGets() {
+        int found = 0;
+        for (String key : keys) {
+            if (store.get(key) != null) found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int coalescedGets() {
+        return store.getAllAsync(keys).join().size();
+    }
+}
@@ -0,0 +1,83 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.codec.CompactMessageCodec;
+import net.swofty.redisapi.api.codec.JsonMessageCodec;
+import net.swofty.redisapi.util.RedisParsableMessage;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and parsing a player state message through {@link RedisParsableMessage} and the message codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageCodecBenchmark {
+    private RedisParsableMessage message;
+    private String received;
+    private byte[] json;
+    private byte[] compact;
+
+    @Setup
+    public void setup() {
+        JSONArray inventory = new JSONArray();
+        for (int slot = 0; slot < 9; slot++) {
+            inventory.put(new JSONObject().put("slot", slot).put("item", "minecraft:stone").put("amount", 64));
+        }
+
+        message = RedisParsableMessage.from(new JSONObject()
+                .put("uuid", "2f1e7c1a-8d0b-4e53-9a4c-54d1f0e7a6b1")
+                .put("name", "Swofty")
+                .put("x", 128.5).put("y", 64).put("z", -3021.25)
+                .put("health", 20).put("online", true)
+                .put("inventory", inventory));
+        received = "all;" + message.formatForSend();
+        json = JsonMessageCodec.INSTANCE.encode(message.getJson());
+        compact = CompactMessageCodec.INSTANCE.encode(message.getJson());
+    }
+
+    @Benchmark
+    public String formatForSend() {
+        return message.formatForSend();
+    }
+
+    @Benchmark
+    public JSONObject parse() {
+        return RedisParsableMessage.parse(received).getJson();
+    }
+
+    @Benchmark
+    public long parseRoutingFields() {
+        RedisParsableMessage parsed = RedisParsableMessage.parse(received);
+        return parsed.<String>get("uuid", "").length() + parsed.getInt("health", 0);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return JsonMessageCodec.INSTANCE.encode(message.getJson());
+    }
+
+    @Benchmark
+    public JSONObject jsonDecode() {
+        return JsonMessageCodec.INSTANCE.decode(json, 0, json.length);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return CompactMessageCodec.INSTANCE.encode(message.getJson());
+    }
+
+    @Benchmark
+    public JSONObject compactDecode() {
+        return CompactMessageCodec.INSTANCE.decode(compact, 0, compact.length);
+    }
+}
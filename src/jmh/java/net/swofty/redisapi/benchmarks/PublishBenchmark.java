@@ -0,0 +1,80 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.api.ChannelRegistry;
+import net.swofty.redisapi.api.RedisAPI;
+import net.swofty.redisapi.api.RedisChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of {@link RedisAPI#publishMessage(RedisChannel, String)}, with and without pipelining.
+ */
+@State(Scope.Benchmark)
+public class PublishBenchmark {
+    private static final int BATCH = 1_000;
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    @Param({"false", "true"})
+    public boolean binaryMode;
+
+    @Param({"64", "4096"})
+    public int payloadSize;
+
+    private BenchmarkEnvironment environment;
+    private RedisChannel channel;
+    private String payload;
+
+    @Setup
+    public void setup() throws IOException {
+        environment = BenchmarkEnvironment.start(binaryMode);
+        if (pipelined) environment.api.enablePipelinedPublishing(256, Duration.ZERO);
+
+        channel = ChannelRegistry.getFromName("bench-publish");
+        payload = "x".repeat(payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    /**
+     * Publishes a batch of messages without waiting in between, then waits for all of them to be sent.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void publishBatch() {
+        CompletableFuture<?>[] futures = new CompletableFuture[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = environment.api.publishMessage(channel, payload);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Publishes a single message and waits for it to be sent.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void publishSingle() {
+        environment.api.publishMessage(channel, payload).join();
+    }
+}
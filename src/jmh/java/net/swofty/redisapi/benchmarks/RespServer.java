@@ -0,0 +1,342 @@
+package net.swofty.redisapi.benchmarks;
+
+import net.swofty.redisapi.util.GlobMatcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal in-process stand-in for a Redis server speaking RESP2, just enough for the benchmarks to run offline.
+ * It supports PUBLISH, (P)SUBSCRIBE, (P)UNSUBSCRIBE, PING, GET, SET, MGET, MSET and DEL, and acknowledges connection setup
+ * commands such as CLIENT and SELECT. Every connection is served by a platform thread of its own, the benchmarks
+ * only open a handful of them.
+ */
+public final class RespServer implements AutoCloseable {
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket socket;
+    private final Thread acceptor;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Client>> channels = new ConcurrentHashMap<>();
+    private final Map<String, Set<Client>> patterns = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+    private volatile GlobMatcher<String> patternMatcher = new GlobMatcher<>(Map.of());
+    private volatile boolean running = true;
+
+    /**
+     * Starts the server on an ephemeral port of the loopback interface.
+     */
+    public RespServer() throws IOException {
+        this.socket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofPlatform().daemon().name("RespServer-Acceptor").start(this::accept);
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return the URI clients connect to this server with
+     */
+    public String getUri() {
+        return "redis://127.0.0.1:" + getPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        socket.close();
+        for (Client client : clients) {
+            client.close();
+        }
+        acceptor.interrupt();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket connection = socket.accept();
+                connection.setTcpNoDelay(true);
+                Client client = new Client(connection);
+                clients.add(client);
+                Thread.ofPlatform().daemon().name("RespServer-Client").start(client::serve);
+            } catch (IOException e) {
+                if (running) e.printStackTrace();
+            }
+        }
+    }
+
+    private long publish(String channel, byte[] message) {
+        long receivers = 0;
+        Set<Client> subscribers = channels.get(channel);
+        if (subscribers != null) {
+            for (Client subscriber : subscribers) {
+                subscriber.push("message", channel, message);
+                receivers++;
+            }
+        }
+
+        for (String pattern : patternMatcher.match(channel)) {
+            Set<Client> patternSubscribers = patterns.get(pattern);
+            if (patternSubscribers == null) continue;
+            for (Client subscriber : patternSubscribers) {
+                subscriber.pushPattern(pattern, channel, message);
+                receivers++;
+            }
+        }
+        return receivers;
+    }
+
+    private synchronized void recompilePatterns() {
+        Map<String, String> compiled = new ConcurrentHashMap<>();
+        patterns.forEach((pattern, subscribers) -> {
+            if (!subscribers.isEmpty()) compiled.put(pattern, pattern);
+        });
+        patternMatcher = new GlobMatcher<>(compiled);
+    }
+
+    private final class Client {
+        private final Socket connection;
+        private final InputStream in;
+        private final OutputStream out;
+        private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+        private final Set<String> patternSubscribed = ConcurrentHashMap.newKeySet();
+
+        private Client(Socket connection) throws IOException {
+            this.connection = connection;
+            this.in = new BufferedInputStream(connection.getInputStream(), 64 * 1024);
+            this.out = new BufferedOutputStream(connection.getOutputStream(), 64 * 1024);
+        }
+
+        private void serve() {
+            try {
+                while (running) {
+                    List<byte[]> command = readCommand();
+                    synchronized (out) {
+                        execute(command);
+                        // Pipelined commands are answered together once the client stops sending
+                        if (in.available() == 0) out.flush();
+                    }
+                }
+            } catch (IOException ignored) {
+                // Client disconnected
+            } finally {
+                close();
+            }
+        }
+
+        private void execute(List<byte[]> command) throws IOException {
+            String name = text(command.get(0)).toUpperCase();
+            switch (name) {
+                case "PING" -> {
+                    if (subscribed.isEmpty() && patternSubscribed.isEmpty()) {
+                        out.write("+PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+                    } else {
+                        writeArrayHeader(2);
+                        writeBulk(bytes("pong"));
+                        writeBulk(command.size() > 1 ? command.get(1) : new byte[0]);
+                    }
+                }
+                case "PUBLISH" -> writeInteger(publish(text(command.get(1)), command.get(2)));
+                case "SUBSCRIBE" -> {
+                    for (int i = 1; i < command.size(); i++) {
+                        String channel = text(command.get(i));
+                        if (subscribed.add(channel)) channels.computeIfAbsent(channel, ignored -> ConcurrentHashMap.newKeySet()).add(this);
+                        writeSubscription("subscribe", channel);
+                    }
+                }
+                case "UNSUBSCRIBE" -> {
+                    List<String> targets = command.size() > 1 ? texts(command) : new ArrayList<>(subscribed);
+                    for (String channel : targets) {
+                        if (subscribed.remove(channel)) removeFrom(channels, channel);
+                        writeSubscription("unsubscribe", channel);
+                    }
+                    if (targets.isEmpty()) writeSubscription("unsubscribe", null);
+                }
+                case "PSUBSCRIBE" -> {
+                    for (int i = 1; i < command.size(); i++) {
+                        String pattern = text(command.get(i));
+                        if (patternSubscribed.add(pattern)) patterns.computeIfAbsent(pattern, ignored -> ConcurrentHashMap.newKeySet()).add(this);
+                        writeSubscription("psubscribe", pattern);
+                    }
+                    recompilePatterns();
+                }
+                case "PUNSUBSCRIBE" -> {
+                    List<String> targets = command.size() > 1 ? texts(command) : new ArrayList<>(patternSubscribed);
+                    for (String pattern : targets) {
+                        if (patternSubscribed.remove(pattern)) removeFrom(patterns, pattern);
+                        writeSubscription("punsubscribe", pattern);
+                    }
+                    if (targets.isEmpty()) writeSubscription("punsubscribe", null);
+                    recompilePatterns();
+                }
+                case "GET" -> {
+                    byte[] value = store.get(text(command.get(1)));
+                    if (value == null) out.write(NIL);
+                    else writeBulk(value);
+                }
+                case "SET" -> {
+                    store.put(text(command.get(1)), command.get(2));
+                    out.write(OK);
+                }
+                case "MGET" -> {
+                    writeArrayHeader(command.size() - 1);
+                    for (int i = 1; i < command.size(); i++) {
+                        byte[] value = store.get(text(command.get(i)));
+                        if (value == null) out.write(NIL);
+                        else writeBulk(value);
+                    }
+                }
+                case "MSET" -> {
+                    for (int i = 1; i + 1 < command.size(); i += 2) {
+                        store.put(text(command.get(i)), command.get(i + 1));
+                    }
+                    out.write(OK);
+                }
+                case "DEL" -> {
+                    long removed = 0;
+                    for (int i = 1; i < command.size(); i++) {
+                        if (store.remove(text(command.get(i))) != null) removed++;
+                    }
+                    writeInteger(removed);
+                }
+                case "CLIENT", "SELECT", "AUTH", "READONLY" -> out.write(OK);
+                case "QUIT" -> {
+                    out.write(OK);
+                    out.flush();
+                    close();
+                }
+                default -> out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void push(String kind, String channel, byte[] message) {
+            synchronized (out) {
+                try {
+                    writeArrayHeader(3);
+                    writeBulk(bytes(kind));
+                    writeBulk(bytes(channel));
+                    writeBulk(message);
+                    out.flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        }
+
+        private void pushPattern(String pattern, String channel, byte[] message) {
+            synchronized (out) {
+                try {
+                    writeArrayHeader(4);
+                    writeBulk(bytes("pmessage"));
+                    writeBulk(bytes(pattern));
+                    writeBulk(bytes(channel));
+                    writeBulk(message);
+                    out.flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        }
+
+        private void writeSubscription(String kind, String name) throws IOException {
+            writeArrayHeader(3);
+            writeBulk(bytes(kind));
+            if (name == null) out.write(NIL);
+            else writeBulk(bytes(name));
+            writeInteger(subscribed.size() + patternSubscribed.size());
+        }
+
+        private void close() {
+            if (!clients.remove(this)) return;
+            subscribed.forEach(channel -> removeFrom(channels, channel));
+            patternSubscribed.forEach(pattern -> removeFrom(patterns, pattern));
+            if (!patternSubscribed.isEmpty()) recompilePatterns();
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void removeFrom(Map<String, Set<Client>> subscriptions, String name) {
+            Set<Client> subscribers = subscriptions.get(name);
+            if (subscribers != null) subscribers.remove(this);
+        }
+
+        private List<byte[]> readCommand() throws IOException {
+            int type = in.read();
+            if (type == -1) throw new EOFException();
+            if (type != '*') throw new IOException("Inline commands are not supported");
+
+            int count = (int) readLong();
+            List<byte[]> command = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (in.read() != '$') throw new IOException("Expected a bulk string");
+                int length = (int) readLong();
+                command.add(in.readNBytes(length));
+                in.skipNBytes(2);
+            }
+            return command;
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            boolean negative = false;
+            for (int b = in.read(); b != '\r'; b = in.read()) {
+                if (b == -1) throw new EOFException();
+                if (b == '-') negative = true;
+                else value = value * 10 + (b - '0');
+            }
+            in.read();
+            return negative ? -value : value;
+        }
+
+        private void writeArrayHeader(int length) throws IOException {
+            out.write(('*' + Integer.toString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private void writeBulk(byte[] value) throws IOException {
+            out.write(('$' + Integer.toString(value.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(value);
+            out.write('\r');
+            out.write('\n');
+        }
+
+        private void writeInteger(long value) throws IOException {
+            out.write((':' + Long.toString(value) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private List<String> texts(List<byte[]> command) {
+            List<String> texts = new ArrayList<>(command.size() - 1);
+            for (int i = 1; i < command.size(); i++) {
+                texts.add(text(command.get(i)));
+            }
+            return texts;
+        }
+    }
+
+    private static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
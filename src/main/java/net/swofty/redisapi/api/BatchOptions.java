@@ -0,0 +1,40 @@
+package net.swofty.redisapi.api;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Settings of a batched channel, set these through {@link ChannelOptions.ChannelOptionsBuilder#batching(BatchOptions)}
+ * to pack the messages published on a channel into shared PUBLISH commands. Messages for the same channel and filter
+ * id are collected until one of the limits is reached, then sent framed as a single batch which receivers unpack
+ * again. Batching requires binary mode, and every receiving instance must run a version that understands batches.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class BatchOptions {
+
+      /**
+       * Settings used by batched channels that don't need anything else
+       */
+      public static final BatchOptions DEFAULT = BatchOptions.builder().build();
+
+      /**
+       * Maximum amount of messages packed into a single batch
+       */
+      @Builder.Default
+      private final int maxMessages = 64;
+
+      /**
+       * Maximum size of a batch in bytes, a single message larger than this is still sent in a batch of its own
+       */
+      @Builder.Default
+      private final int maxBytes = 64 * 1024;
+
+      /**
+       * How long a batch waits for more messages after its first one before it is sent anyway
+       */
+      @Builder.Default
+      private final Duration linger = Duration.ofMillis(5);
+}
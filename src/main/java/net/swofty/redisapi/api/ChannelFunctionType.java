@@ -2,5 +2,7 @@ package net.swofty.redisapi.api;
 
 public enum ChannelFunctionType {
       CONSUMER,
-      CLASS
+      CLASS,
+      BINARY,
+      STRUCTURED
 }
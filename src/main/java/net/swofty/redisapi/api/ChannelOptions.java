@@ -0,0 +1,116 @@
+package net.swofty.redisapi.api;
+
+import lombok.Builder;
+import lombok.Getter;
+import net.swofty.redisapi.api.codec.JsonMessageCodec;
+import net.swofty.redisapi.api.codec.MessageCodec;
+import net.swofty.redisapi.events.HandlerScope;
+import net.swofty.redisapi.events.RedisBatchReceiveInterface;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Per channel settings used when registering a channel, build one with {@link #builder()} or use {@link #DEFAULT}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ChannelOptions {
+
+      /**
+       * Options used by every channel that is registered without any options of its own
+       */
+      public static final ChannelOptions DEFAULT = ChannelOptions.builder().build();
+
+      /**
+       * Executor that the handlers of this channel are ran on, this can be any executor including
+       * {@code Executors.newVirtualThreadPerTaskExecutor()}. When null, {@link RedisAPI#getDispatchExecutor()} is used.
+       */
+      private final Executor executor;
+
+      /**
+       * Function extracting an ordering key from an incoming message. Messages with the same key are always handled
+       * one after another in the order they were received, messages with different keys may be handled in parallel.
+       * When null, every message on the channel is handled in order, as are the messages of binary channels and
+       * structured messages that were not encoded as JSON.
+       */
+      private final Function<String, ?> orderingKey;
+
+      /**
+       * Amount of ordered lanes the ordering keys of this channel are spread over, only used when an ordering key is set
+       */
+      @Builder.Default
+      private final int orderingLanes = Runtime.getRuntime().availableProcessors() * 2;
+
+      /**
+       * Maximum amount of messages waiting to be handled in a single lane of this channel
+       */
+      @Builder.Default
+      private final int queueCapacity = 65_536;
+
+      /**
+       * What to do with an incoming message when its lane is full, {@link OverflowPolicy#FAIL} discards it like
+       * {@link OverflowPolicy#DROP_NEWEST} as there is no caller to fail
+       */
+      @Builder.Default
+      private final OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+      /**
+       * Priority class of this channel, deciding which publish queue its messages go through and which dispatch queue
+       * its handlers are ran from. Only the default dispatch executor takes the priority into account.
+       */
+      @Builder.Default
+      private final ChannelPriority priority = ChannelPriority.NORMAL;
+
+      /**
+       * What to do with a message published on this channel when the
+       * {@link RedisAPI#getPublishQueue(ChannelPriority) publish queue} of its priority is full
+       */
+      @Builder.Default
+      private final OverflowPolicy publishOverflowPolicy = OverflowPolicy.BLOCK;
+
+      /**
+       * How many instances of a class handler are created, overriding the {@link HandlerScope} annotation of the class.
+       * When null, the annotation is used and otherwise a new instance is created for every message.
+       */
+      private final HandlerScope.Scope handlerScope;
+
+      /**
+       * Codec structured messages published on this channel are encoded with. Receivers always decode with the codec
+       * a message was tagged with, so changing it only requires every instance to know the new codec. Only used in
+       * binary mode, text mode always sends JSON.
+       */
+      @Builder.Default
+      private final MessageCodec codec = JsonMessageCodec.INSTANCE;
+
+      /**
+       * When set, the channel is durable. Messages are appended to a Redis Stream and read through a consumer group
+       * instead of pub/sub, so they are kept while no instance is listening and each is handled by one instance of the
+       * group. Handlers must finish without throwing for a message to be acknowledged, otherwise it is redelivered.
+       */
+      private final StreamOptions stream;
+
+      /**
+       * When set, messages published on this channel are packed into batches sent with a single PUBLISH, cutting the
+       * amount of Redis operations and subscriber wake ups by the size of the batches. Requires binary mode, channels
+       * with batching can't be registered while it is disabled. The futures of batched messages complete once their
+       * batch was sent, binary payloads must not be modified until then. With {@link OverflowPolicy#FAIL} a full publish
+       * queue is only detected straight away if it is already full when the message is published, a batch that no
+       * longer fits once it is flushed fails the futures of its messages instead. Ignored for durable channels.
+       */
+      private final BatchOptions batching;
+
+      /**
+       * When set, batches received on this channel are handed to this handler in a single call instead of each of
+       * their messages being handed to the handler of the channel, messages that were not batched still go to the
+       * handler of the channel. The ordering key is not used for batches handed to this handler.
+       */
+      private final RedisBatchReceiveInterface batchHandler;
+
+      /**
+       * @return true if the channel is backed by a Redis Stream instead of pub/sub
+       */
+      public boolean isDurable() {
+            return stream != null;
+      }
+}
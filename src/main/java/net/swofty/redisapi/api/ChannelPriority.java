@@ -0,0 +1,35 @@
+package net.swofty.redisapi.api;
+
+import lombok.Getter;
+
+/**
+ * Priority class of a channel. Every class is published through a {@link net.swofty.redisapi.api.pipeline.PublishQueue}
+ * of its own and dispatched from a queue of its own, which threads drain by weighted round robin, so a burst on bulk
+ * channels doesn't hold up control traffic.
+ */
+public enum ChannelPriority {
+      /**
+       * Latency critical control traffic such as data requests and commands. High priority messages skip the
+       * pipelined writer, and can be given a dedicated subscriber connection with
+       * {@link RedisAPI#setDedicatedPrioritySubscriber(boolean)}.
+       */
+      HIGH(16),
+      /**
+       * Regular traffic, the default of every channel
+       */
+      NORMAL(4),
+      /**
+       * Throughput oriented traffic such as state synchronisation, which can wait behind everything else
+       */
+      BULK(1);
+
+      /**
+       * Share of the dispatch threads this class gets while every class has work waiting
+       */
+      @Getter
+      private final int weight;
+
+      ChannelPriority(int weight) {
+            this.weight = weight;
+      }
+}
@@ -2,34 +2,363 @@ package net.swofty.redisapi.api;
 
 import lombok.experimental.UtilityClass;
 import net.swofty.redisapi.exceptions.ChannelAlreadyRegisteredException;
-import net.swofty.redisapi.exceptions.ChannelNotRegisteredException;
+import net.swofty.redisapi.exceptions.ChannelDefinitionError;
 import lombok.NonNull;
+import net.swofty.redisapi.util.GlobMatcher;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 @UtilityClass
 public class ChannelRegistry {
 
-      public ArrayList<RedisChannel> registeredChannels = new ArrayList<>();
+      /**
+       * Separator between a channel name and a filter id in the name of a filter routed sub-channel
+       */
+      public final String FILTER_SEPARATOR = "#";
+
+      /**
+       * Channel the shared subscriber connection always stays subscribed to while high priority channels have a
+       * connection of their own, as a connection can't be subscribed to nothing. Nothing is ever published on it
+       */
+      final String SHARED_SUBSCRIBER_CHANNEL = "internal-shared-subscriber";
+
+      /**
+       * Every registered channel by name, only replaced while holding the class lock
+       */
+      private volatile Map<String, RedisChannel> channelsByName = Map.of();
+
+      /**
+       * The registered channels in registration order, replaced along with {@link #channelsByName}
+       */
+      private volatile List<RedisChannel> channelList = List.of();
+
+      /**
+       * Read-only view of the registered channels, iterating it walks the channels registered when the iteration
+       * started. Channels are registered and unregistered through {@link #registerChannel(RedisChannel)} and
+       * {@link #unregisterChannel(String)}
+       * @deprecated use {@link #getRegisteredChannels()} or {@link #getFromName(String)} instead
+       */
+      @Deprecated
+      public final List<RedisChannel> registeredChannels = new RegisteredChannelsView();
+
+      /**
+       * Routing table of every name messages are received on, the registered channels plus their filter routed
+       * sub-channels. The table itself is immutable and replaced as a whole on every change, so the subscriber can
+       * look channels up without any locking or allocation.
+       */
+      private volatile RoutingTable routes = RoutingTable.EMPTY;
+
+      /**
+       * Every registered pattern channel by pattern, only replaced while holding the class lock
+       */
+      private volatile Map<String, RedisChannel> registeredPatterns = Map.of();
+
+      /**
+       * Routing table of every pattern messages are received on, looked up by the pattern Redis reports a message
+       * matched when it is delivered
+       */
+      private volatile RoutingTable patternRoutes = RoutingTable.EMPTY;
+
+      /**
+       * All registered patterns compiled into a single matcher, used to find the pattern channels of a channel name
+       * without testing every pattern
+       */
+      private volatile GlobMatcher<RedisChannel> patternMatcher = new GlobMatcher<>(Map.of());
+
+      /**
+       * Suffix of the filter routed sub-channels this instance subscribes to, null when filter routing is disabled
+       */
+      private volatile String filterRoutedSuffix = null;
+
+      /**
+       * Handles for channels that are only published to and never registered on this instance
+       */
+      private final Map<String, RedisChannel> publishOnlyChannels = new ConcurrentHashMap<>();
 
       /**
-       * Used to receive a channel that has already been registered
+       * Used to receive a channel by name, this is the registered channel if there is one. Channels that are not
+       * registered on this instance can still be published to, in which case a publish only handle is returned that
+       * does not receive any messages
        * @param channelName the name of the channel that is being filtered
        * @return channel object
-       * @throws ChannelNotRegisteredException returns channelNotRegistered when you call this method upon a channel that does not exist
        */
       @NonNull
       public RedisChannel getFromName(String channelName) {
-            return new RedisChannel(channelName, (e) -> {});
-//            return registeredChannels.stream().filter(channel -> Objects.equals(channel.channelName, channelName)).findFirst().orElseThrow(() -> new ChannelNotRegisteredException("There is no channel registered with the name '" + channelName + "'"));
+            RedisChannel channel = channelsByName.get(channelName);
+            if (channel != null) return channel;
+            return publishOnlyChannels.computeIfAbsent(channelName, RedisChannel::new);
+      }
+
+      /**
+       * Used to receive a channel by name, this is the registered channel if there is one. Otherwise a publish only
+       * handle with the given options is returned, used to publish to durable channels or with a specific codec from
+       * instances that don't register the channel themselves
+       * @param channelName the name of the channel
+       * @param options     the options to publish with when the channel is not registered on this instance
+       * @return channel object
+       */
+      @NonNull
+      public RedisChannel getFromName(String channelName, @NonNull ChannelOptions options) {
+            RedisChannel channel = channelsByName.get(channelName);
+            if (channel != null) return channel;
+            return new RedisChannel(channelName, options);
+      }
+
+      /**
+       * Used to look up the registered channel that incoming messages on the given channel name are routed to
+       * @param channelName the name of the channel the message was received on
+       * @return the registered channel, or null if no channel is registered with this name
+       */
+      public RedisChannel getRoute(String channelName) {
+            return routes.get(channelName);
+      }
+
+      /**
+       * Used to look up the registered channel that incoming messages on the given channel name are routed to
+       * @param channelName the UTF-8 encoded name of the channel the message was received on
+       * @return the registered channel, or null if no channel is registered with this name
+       */
+      public RedisChannel getRoute(byte[] channelName) {
+            return routes.get(channelName);
+      }
+
+      /**
+       * Used to look up the registered pattern channel that messages delivered for the given pattern are routed to
+       * @param pattern the pattern Redis reported the message matched
+       * @return the registered pattern channel, or null if no pattern channel is registered with this pattern
+       */
+      public RedisChannel getPatternRoute(String pattern) {
+            return patternRoutes.get(pattern);
       }
 
-      public void registerChannel(RedisChannel channel) {
-            if (registeredChannels.stream().anyMatch(channel2 -> channel2.channelName.equals(channel.channelName)))
+      /**
+       * Used to look up the registered pattern channel that messages delivered for the given pattern are routed to
+       * @param pattern the UTF-8 encoded pattern Redis reported the message matched
+       * @return the registered pattern channel, or null if no pattern channel is registered with this pattern
+       */
+      public RedisChannel getPatternRoute(byte[] pattern) {
+            return patternRoutes.get(pattern);
+      }
+
+      /**
+       * Used to find every registered pattern channel whose pattern matches a channel name
+       * @param channelName the name of the channel
+       * @return the matching pattern channels, empty if none match
+       */
+      public List<RedisChannel> getMatchingPatternChannels(String channelName) {
+            return patternMatcher.match(channelName);
+      }
+
+      /**
+       * @return every pattern channel currently registered
+       */
+      public Collection<RedisChannel> getRegisteredPatternChannels() {
+            return registeredPatterns.values();
+      }
+
+      /**
+       * @return every pattern the subscriber should be subscribed to, including filter routed sub-patterns
+       */
+      public String[] getPatterns() {
+            return patternRoutes.names();
+      }
+
+      /**
+       * @return every channel currently registered
+       */
+      public Collection<RedisChannel> getRegisteredChannels() {
+            return channelsByName.values();
+      }
+
+      /**
+       * @return every name the subscriber should be subscribed to, including filter routed sub-channels
+       */
+      public String[] getChannelNames() {
+            return routes.names();
+      }
+
+      /**
+       * @param highPriority whether to return the names of high priority channels or of every other channel
+       * @return the names the subscriber should be subscribed to of channels with or without high priority
+       */
+      public String[] getChannelNames(boolean highPriority) {
+            RoutingTable current = routes;
+            return Arrays.stream(current.names())
+                    .filter(name -> (current.get(name).getOptions().getPriority() == ChannelPriority.HIGH) == highPriority)
+                    .toArray(String[]::new);
+      }
+
+      /**
+       * @return the names the shared subscriber connection should be subscribed to, which leaves out high priority
+       * channels while they have a connection of their own
+       */
+      String[] getSharedChannelNames() {
+            if (!PrioritySubscriber.isStarted()) return getChannelNames();
+
+            String[] names = getChannelNames(false);
+            String[] withPlaceholder = Arrays.copyOf(names, names.length + 1);
+            withPlaceholder[names.length] = SHARED_SUBSCRIBER_CHANNEL;
+            return withPlaceholder;
+      }
+
+      /**
+       * Used to get the name of the sub-channel that messages sent to a specific filter id are published on when
+       * filter routing is enabled
+       * @param channelName the name of the channel
+       * @param filterId    the filter id the message is sent to
+       * @return the name of the sub-channel
+       */
+      public String getFilterRoutedName(String channelName, String filterId) {
+            return channelName + FILTER_SEPARATOR + filterId;
+      }
+
+      /**
+       * @return the suffix of the filter routed sub-channels this instance subscribes to, or null when filter routing
+       * is disabled
+       */
+      public String getFilterRoutedSuffix() {
+            return filterRoutedSuffix;
+      }
+
+      /**
+       * Used to register a channel, this can be done at any time. When the subscriber is already running the live
+       * connection subscribes to it shortly after, without reconnecting. Durable channels start reading their stream
+       * on a connection of their own instead
+       * @param channel the channel to register
+       * @throws ChannelAlreadyRegisteredException if a channel with the same name is already registered
+       * @throws ChannelDefinitionError if a binary channel is registered as durable
+       */
+      public synchronized void registerChannel(RedisChannel channel) {
+            if (channelsByName.containsKey(channel.channelName))
                   throw new ChannelAlreadyRegisteredException("A channel already exists with this name '" + channel.channelName + "'");
+            if (channel.getOptions().isDurable() && channel.functionType == ChannelFunctionType.BINARY)
+                  throw new ChannelDefinitionError("Binary channels can't be durable, '" + channel.channelName + "' must use a text or structured handler");
+
+            Map<String, RedisChannel> updated = new HashMap<>(channelsByName);
+            updated.put(channel.channelName, channel);
+            channelsByName = Map.copyOf(updated);
+            channelList = Stream.concat(channelList.stream(), Stream.of(channel)).toList();
+            publishOnlyChannels.remove(channel.channelName);
+            refreshRoutes();
+            if (channel.getOptions().isDurable()) StreamConsumer.start(channel);
+      }
+
+      /**
+       * Used to unregister a channel, messages stop being routed to it straight away and the live subscriber
+       * connection unsubscribes from it shortly after. Durable channels stop reading their stream within the block
+       * time of their reads
+       * @param channelName the name of the channel
+       * @return the channel that was unregistered, or null if no channel was registered with this name
+       */
+      public synchronized RedisChannel unregisterChannel(String channelName) {
+            RedisChannel channel = channelsByName.get(channelName);
+            if (channel == null) return null;
 
-            registeredChannels.add(channel);
-//            RedisAPI.getInstance().getPool().getResource().subscribe(EventRegistry.pubSub, channel.channelName);
+            Map<String, RedisChannel> updated = new HashMap<>(channelsByName);
+            updated.remove(channelName);
+            channelsByName = Map.copyOf(updated);
+            channelList = channelList.stream().filter(registered -> registered != channel).toList();
+            refreshRoutes();
+            if (channel.getOptions().isDurable()) StreamConsumer.stop(channelName);
+            return channel;
       }
 
+      /**
+       * Used to register a pattern channel, which receives the messages of every channel matching its glob-style
+       * pattern such as {@code match.*.events}. This can be done at any time, the live subscriber connection
+       * subscribes to the pattern shortly after
+       * @param channel the channel to register, its name is the pattern
+       * @throws ChannelAlreadyRegisteredException if a pattern channel with the same pattern is already registered
+       * @throws IllegalArgumentException if the pattern is malformed
+       * @throws ChannelDefinitionError if the instance is in cluster mode, sharded pub/sub has no pattern subscriptions
+       */
+      public synchronized void registerPatternChannel(RedisChannel channel) {
+            if (registeredPatterns.containsKey(channel.channelName))
+                  throw new ChannelAlreadyRegisteredException("A pattern channel already exists with this pattern '" + channel.channelName + "'");
+            RedisAPI api = RedisAPI.getInstance();
+            if (api != null && api.isCluster())
+                  throw new ChannelDefinitionError("Pattern channels can't be registered in cluster mode, '" + channel.channelName + "' must be a regular channel");
+
+            Map<String, RedisChannel> updated = new HashMap<>(registeredPatterns);
+            updated.put(channel.channelName, channel);
+            patternMatcher = new GlobMatcher<>(updated);
+            registeredPatterns = Map.copyOf(updated);
+            refreshRoutes();
+      }
+
+      /**
+       * Used to unregister a pattern channel, messages stop being routed to it straight away and the live subscriber
+       * connection unsubscribes from the pattern shortly after
+       * @param pattern the pattern of the channel
+       * @return the channel that was unregistered, or null if no pattern channel was registered with this pattern
+       */
+      public synchronized RedisChannel unregisterPatternChannel(String pattern) {
+            RedisChannel channel = registeredPatterns.get(pattern);
+            if (channel == null) return null;
+
+            Map<String, RedisChannel> updated = new HashMap<>(registeredPatterns);
+            updated.remove(pattern);
+            patternMatcher = new GlobMatcher<>(updated);
+            registeredPatterns = Map.copyOf(updated);
+            refreshRoutes();
+            return channel;
+      }
+
+      /**
+       * Rebuilds the routing tables from the registered channels and patterns and the filter routing settings of the
+       * current instance, then syncs the subscriptions of the live subscriber connection with them
+       */
+      public synchronized void refreshRoutes() {
+            RedisAPI api = RedisAPI.getInstance();
+            String filterId = api != null && api.isFilterRouting() ? api.getAddress() : null;
+
+            filterRoutedSuffix = filterId == null ? null : FILTER_SEPARATOR + filterId;
+
+            // Durable channels are read from their streams, they are never subscribed to
+            Map<String, RedisChannel> updated = new HashMap<>();
+            channelsByName.forEach((name, channel) -> {
+                  if (channel.getOptions().isDurable()) return;
+                  updated.put(name, channel);
+                  if (filterId != null) updated.put(getFilterRoutedName(name, filterId), channel);
+            });
+            routes = RoutingTable.of(updated);
+
+            Map<String, RedisChannel> updatedPatterns = new HashMap<>(registeredPatterns);
+            if (filterId != null) {
+                  registeredPatterns.forEach((pattern, channel) -> updatedPatterns.put(getFilterRoutedName(pattern, filterId), channel));
+            }
+            patternRoutes = RoutingTable.of(updatedPatterns);
+            SubscriptionManager.requestSync();
+      }
+
+      private final class RegisteredChannelsView extends AbstractList<RedisChannel> {
+            @Override
+            public RedisChannel get(int index) {
+                  return channelList.get(index);
+            }
+
+            @Override
+            public int size() {
+                  return channelList.size();
+            }
+
+            @Override
+            public Iterator<RedisChannel> iterator() {
+                  return channelList.iterator();
+            }
+
+            @Override
+            public Spliterator<RedisChannel> spliterator() {
+                  return channelList.spliterator();
+            }
+      }
 }
@@ -0,0 +1,25 @@
+package net.swofty.redisapi.api;
+
+/**
+ * Decides what happens to a new message when the bounded queue it is being added to is already full.
+ */
+public enum OverflowPolicy {
+      /**
+       * Waits until there is room in the queue, pushing the backpressure onto the thread adding the message. A handler
+       * adding to the queue of its own channel, e.g. by publishing to it with loopback, never waits on itself, its
+       * message is queued past the capacity instead.
+       */
+      BLOCK,
+      /**
+       * Discards the oldest queued message to make room for the new one.
+       */
+      DROP_OLDEST,
+      /**
+       * Discards the new message, keeping the queue as it is.
+       */
+      DROP_NEWEST,
+      /**
+       * Rejects the new message, failing the operation that tried to add it so the caller can decide what to do.
+       */
+      FAIL
+}
@@ -0,0 +1,166 @@
+package net.swofty.redisapi.api;
+
+import net.swofty.redisapi.api.kv.KeyValueStore;
+import net.swofty.redisapi.events.EventRegistry;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Subscribes to the channels with {@link ChannelPriority#HIGH} priority on a connection of their own when
+ * {@link RedisAPI#setDedicatedPrioritySubscriber(boolean)} is enabled, so their messages are never read behind a
+ * backlog of bulk messages on the shared subscriber connection. The connection is only opened while there is at least
+ * one high priority channel to subscribe to, and is kept in sync with the routing table by {@link SubscriptionManager}.
+ */
+final class PrioritySubscriber extends SubscriberConnection {
+      /**
+       * The live subscriber, guarded by the class lock
+       */
+      private static PrioritySubscriber current;
+      private static boolean started;
+
+      private volatile JedisPubSub pubSub;
+      private volatile BinaryJedisPubSub binaryPubSub;
+
+      private PrioritySubscriber(boolean binary, String[] initialChannels) {
+            super(PrioritySubscriber.class, binary, initialChannels, "AtlasRedisAPI-Subscriber-Priority");
+      }
+
+      /**
+       * Subscribes to every registered high priority channel, and to any registered afterwards.
+       */
+      static synchronized void startAll() {
+            started = true;
+            sync();
+      }
+
+      /**
+       * Unsubscribes and closes the connection, nothing is subscribed again until {@link #startAll()} is called.
+       */
+      static synchronized void stopAll() {
+            started = false;
+            if (current != null) current.close();
+            current = null;
+      }
+
+      /**
+       * @return true if high priority channels are subscribed to here instead of on the shared connection
+       */
+      static synchronized boolean isStarted() {
+            return started;
+      }
+
+      /**
+       * Brings the subscriptions of the connection in line with the routing table, opening or closing it as needed.
+       */
+      static synchronized void sync() {
+            if (!started) return;
+
+            String[] desired = ChannelRegistry.getChannelNames(true);
+            if (desired.length == 0) {
+                  if (current != null) current.close();
+                  current = null;
+                  return;
+            }
+
+            if (current == null) {
+                  current = new PrioritySubscriber(RedisAPI.getInstance().isBinaryMode(), desired);
+                  current.thread.start();
+            } else {
+                  current.update(desired);
+            }
+      }
+
+      /**
+       * Subscribes to the given channels this connection is not subscribed to yet, and unsubscribes from every other
+       * channel. Called while holding the class lock.
+       */
+      private void update(String[] channels) {
+            if (!live) return;
+
+            Set<String> desired = new HashSet<>(Arrays.asList(channels));
+            List<String> subscribe = new ArrayList<>();
+            for (String channel : desired) {
+                  if (!subscribed.contains(channel)) subscribe.add(channel);
+            }
+            List<String> unsubscribe = new ArrayList<>();
+            for (String channel : subscribed) {
+                  if (!desired.contains(channel)) unsubscribe.add(channel);
+            }
+
+            if (!subscribe.isEmpty()) {
+                  subscribed.addAll(subscribe);
+                  if (binary) binaryPubSub.subscribe(encode(subscribe));
+                  else pubSub.subscribe(subscribe.toArray(String[]::new));
+            }
+            if (!unsubscribe.isEmpty()) {
+                  unsubscribe.forEach(subscribed::remove);
+                  if (binary) binaryPubSub.unsubscribe(encode(unsubscribe));
+                  else pubSub.unsubscribe(unsubscribe.toArray(String[]::new));
+            }
+      }
+
+      @Override
+      HostAndPort address(RedisAPI api) {
+            return api.getHostAndPort();
+      }
+
+      @Override
+      void subscribe(Jedis jedis) {
+            if (binary) {
+                  binaryPubSub = new BinaryJedisPubSub() {
+                        @Override
+                        public void onMessage(byte[] channel, byte[] message) {
+                              EventRegistry.handleBinary(channel, message);
+                        }
+
+                        @Override
+                        public void onSubscribe(byte[] channel, int subscribedChannels) {
+                              subscribed(new String(channel, StandardCharsets.UTF_8));
+                        }
+                  };
+                  jedis.subscribe(binaryPubSub, encode(initialChannels));
+            } else {
+                  pubSub = new JedisPubSub() {
+                        @Override
+                        public void onMessage(String channel, String message) {
+                              EventRegistry.handleAll(channel, message);
+                        }
+
+                        @Override
+                        public void onSubscribe(String channel, int subscribedChannels) {
+                              subscribed(channel);
+                        }
+                  };
+                  jedis.subscribe(pubSub, initialChannels);
+            }
+      }
+
+      @Override
+      void unsubscribeAll() {
+            if (binaryPubSub != null && binaryPubSub.isSubscribed()) binaryPubSub.unsubscribe();
+            if (pubSub != null && pubSub.isSubscribed()) pubSub.unsubscribe();
+      }
+
+      @Override
+      void lost(RedisAPI api, Exception e) {
+            synchronized (PrioritySubscriber.class) {
+                  // Invalidations published while reconnecting are missed
+                  if (subscribed.contains(KeyValueStore.INVALIDATION_CHANNEL)) api.getKeyValueStore().subscriptionLost();
+            }
+            System.out.println("[WARNING]: Lost the priority subscriber connection, reconnecting: " + e.getMessage());
+      }
+
+      @Override
+      void detach() {
+            if (current == this) current = null;
+      }
+}
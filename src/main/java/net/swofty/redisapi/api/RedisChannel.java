@@ -1,9 +1,14 @@
 package net.swofty.redisapi.api;
 
 import lombok.Getter;
+import net.swofty.redisapi.events.ChannelDispatcher;
+import net.swofty.redisapi.events.HandlerBinding;
+import net.swofty.redisapi.events.RedisBinaryReceiveInterface;
 import net.swofty.redisapi.events.RedisMessagingReceiveEvent;
 import net.swofty.redisapi.events.RedisMessagingReceiveInterface;
+import net.swofty.redisapi.events.RedisStructuredReceiveInterface;
 
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 public class RedisChannel {
@@ -11,38 +16,115 @@ public class RedisChannel {
       /**
        * Consumer that contains the function ran when a message is received on this channel
        */
-      public Consumer<RedisMessagingReceiveEvent> receiveEvent;
+      public final Consumer<RedisMessagingReceiveEvent> receiveEvent;
       /**
        * Class that contains the function ran when a message is received on this channel
        */
-      public Class<? extends RedisMessagingReceiveInterface> receiveInterface;
+      public final Class<? extends RedisMessagingReceiveInterface> receiveInterface;
+
+      /**
+       * Handler bound from either the consumer or the class when the channel was created, this is what incoming
+       * messages are passed to
+       */
+      public final RedisMessagingReceiveInterface handler;
+
+      /**
+       * Handler receiving the raw payload of messages, only set for channels of the {@link ChannelFunctionType#BINARY} type
+       */
+      public final RedisBinaryReceiveInterface binaryHandler;
+
+      /**
+       * Handler receiving decoded messages, only set for channels of the {@link ChannelFunctionType#STRUCTURED} type
+       */
+      public final RedisStructuredReceiveInterface structuredHandler;
 
       /**
        * Used to determine what type of function is being used to receive messages.
        */
-      public ChannelFunctionType functionType;
+      public final ChannelFunctionType functionType;
 
       /**
        * Name of the channel that messages are sent through
        */
-      public String channelName;
+      public final String channelName;
+
+      /**
+       * Name of the channel encoded as UTF-8, used by binary mode. This must never be modified
+       */
+      public final byte[] channelNameBytes;
 
       /**
        * Timestamp in Unix milliseconds of when the channel last had a message received through it
        */
       @Getter
-      public Long timestamp;
+      public volatile Long timestamp;
+
+      /**
+       * Settings this channel was registered with
+       */
+      @Getter
+      public final ChannelOptions options;
+
+      /**
+       * Dispatcher handing the messages of this channel off the subscriber thread
+       */
+      public final ChannelDispatcher dispatcher;
+
+      /**
+       * Creates a publish only handle for a channel that is not registered on this instance, it never receives messages
+       * @param channelName the name of the channel
+       */
+      RedisChannel(String channelName) {
+            this(channelName, ChannelOptions.DEFAULT);
+      }
+
+      /**
+       * Creates a publish only handle for a channel that is not registered on this instance, published with the given options
+       * @param channelName the name of the channel
+       * @param options     the options messages are published with
+       */
+      RedisChannel(String channelName, ChannelOptions options) {
+            this(channelName, null, null, null, null, null, null, options);
+      }
 
       public RedisChannel(String channelName, Consumer<RedisMessagingReceiveEvent> receiveEventClass) {
-            this.channelName = channelName;
-            this.receiveEvent = receiveEventClass;
-            this.functionType = ChannelFunctionType.CONSUMER;
+            this(channelName, receiveEventClass, ChannelOptions.DEFAULT);
+      }
+
+      public RedisChannel(String channelName, Consumer<RedisMessagingReceiveEvent> receiveEventClass, ChannelOptions options) {
+            this(channelName, ChannelFunctionType.CONSUMER, receiveEventClass, null, HandlerBinding.bind(receiveEventClass), null, null, options);
       }
 
       public RedisChannel(String channelName, Class<? extends RedisMessagingReceiveInterface> classz) {
+            this(channelName, classz, ChannelOptions.DEFAULT);
+      }
+
+      public RedisChannel(String channelName, Class<? extends RedisMessagingReceiveInterface> classz, ChannelOptions options) {
+            this(channelName, ChannelFunctionType.CLASS, null, classz, HandlerBinding.bind(classz, options.getHandlerScope()), null, null, options);
+      }
+
+      public RedisChannel(String channelName, RedisBinaryReceiveInterface binaryHandler, ChannelOptions options) {
+            this(channelName, ChannelFunctionType.BINARY, null, null, null, binaryHandler, null, options);
+      }
+
+      public RedisChannel(String channelName, RedisStructuredReceiveInterface structuredHandler, ChannelOptions options) {
+            this(channelName, ChannelFunctionType.STRUCTURED, null, null, null, null, structuredHandler, options);
+      }
+
+      private RedisChannel(String channelName, ChannelFunctionType functionType,
+                           Consumer<RedisMessagingReceiveEvent> receiveEvent, Class<? extends RedisMessagingReceiveInterface> receiveInterface,
+                           RedisMessagingReceiveInterface handler, RedisBinaryReceiveInterface binaryHandler,
+                           RedisStructuredReceiveInterface structuredHandler, ChannelOptions options) {
             this.channelName = channelName;
-            this.receiveInterface = classz;
-            this.functionType = ChannelFunctionType.CLASS;
+            this.channelNameBytes = channelName.getBytes(StandardCharsets.UTF_8);
+            this.functionType = functionType;
+            this.receiveEvent = receiveEvent;
+            this.receiveInterface = receiveInterface;
+            this.handler = handler;
+            this.binaryHandler = binaryHandler;
+            this.structuredHandler = structuredHandler;
+            this.options = options;
+            this.dispatcher = functionType == null ? null : new ChannelDispatcher(options);
       }
 
-}
\ No newline at end of file
+}
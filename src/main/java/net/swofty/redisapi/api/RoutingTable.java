@@ -0,0 +1,78 @@
+package net.swofty.redisapi.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of every name messages are received on, mapped to the registered channel they are routed to.
+ * Routes are indexed both by name and by the UTF-8 bytes of the name so
+ * either subscriber mode can route a message with a single lookup and without allocating. Changes produce a new
+ * table which replaces the old one as a whole.
+ */
+final class RoutingTable {
+      static final RoutingTable EMPTY = new RoutingTable(Map.of());
+
+      private final Map<String, RedisChannel> byName;
+      private final byte[][] keys;
+      private final RedisChannel[] values;
+      private final int mask;
+
+      private RoutingTable(Map<String, RedisChannel> byName) {
+            this.byName = Map.copyOf(byName);
+
+            // Open addressing table at most half full, sized to a power of two
+            int capacity = Integer.highestOneBit(Math.max(1, byName.size()) * 2 - 1) << 1;
+            this.keys = new byte[capacity][];
+            this.values = new RedisChannel[capacity];
+            this.mask = capacity - 1;
+
+            for (Map.Entry<String, RedisChannel> entry : byName.entrySet()) {
+                  byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                  int index = hash(key) & mask;
+                  while (keys[index] != null) index = (index + 1) & mask;
+                  keys[index] = key;
+                  values[index] = entry.getValue();
+            }
+      }
+
+      RedisChannel get(String name) {
+            return byName.get(name);
+      }
+
+      RedisChannel get(byte[] name) {
+            int index = hash(name) & mask;
+            byte[] key;
+            while ((key = keys[index]) != null) {
+                  if (Arrays.equals(key, name)) return values[index];
+                  index = (index + 1) & mask;
+            }
+            return null;
+      }
+
+      boolean contains(String name) {
+            return byName.containsKey(name);
+      }
+
+      Collection<RedisChannel> channels() {
+            return byName.values();
+      }
+
+      String[] names() {
+            return byName.keySet().toArray(String[]::new);
+      }
+
+      /**
+       * @param routes every name messages can be received on, mapped to the channel they are routed to
+       * @return a new table holding the given routes
+       */
+      static RoutingTable of(Map<String, RedisChannel> routes) {
+            return routes.isEmpty() ? EMPTY : new RoutingTable(routes);
+      }
+
+      private static int hash(byte[] key) {
+            int hash = Arrays.hashCode(key);
+            return hash ^ (hash >>> 16);
+      }
+}
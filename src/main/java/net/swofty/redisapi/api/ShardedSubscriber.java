@@ -0,0 +1,242 @@
+package net.swofty.redisapi.api;
+
+import net.swofty.redisapi.api.kv.KeyValueStore;
+import net.swofty.redisapi.events.EventRegistry;
+import redis.clients.jedis.BinaryJedisShardedPubSub;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardedPubSub;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Subscribes to channels through sharded pub/sub when the instance is connected to a Redis Cluster. A shard channel
+ * is only served by the node owning its hash slot, so channels are grouped by node with a dedicated connection and
+ * thread for every node, and every SSUBSCRIBE covers a single slot as Redis requires. When a slot migrates, Redis
+ * unsubscribes the connection from the channels of the slot, the slot map is then refreshed and the channels are
+ * subscribed on the node now owning them.
+ */
+final class ShardedSubscriber extends SubscriberConnection {
+      /**
+       * Subscriber of every node serving a registered channel by node address, guarded by the class lock
+       */
+      private static final Map<HostAndPort, ShardedSubscriber> NODES = new HashMap<>();
+      private static boolean started;
+
+      private final HostAndPort node;
+      private volatile JedisShardedPubSub pubSub;
+      private volatile BinaryJedisShardedPubSub binaryPubSub;
+
+      private ShardedSubscriber(HostAndPort node, boolean binary, List<String> initialChannels) {
+            super(ShardedSubscriber.class, binary, initialChannels.toArray(String[]::new), "AtlasRedisAPI-Subscriber-" + node);
+            this.node = node;
+      }
+
+      /**
+       * Subscribes to every registered channel, and to any registered afterwards.
+       */
+      static synchronized void startAll() {
+            started = true;
+            sync();
+      }
+
+      /**
+       * Unsubscribes and closes the connection of every node, nothing is subscribed again until {@link #startAll()}
+       * is called.
+       */
+      static synchronized void stopAll() {
+            started = false;
+            NODES.values().forEach(ShardedSubscriber::close);
+            NODES.clear();
+      }
+
+      /**
+       * Brings the subscriptions of every node in line with the routing table and the current slot map. A node that
+       * can't be reached is left out and its connection dropped, the sync is then retried after a delay.
+       */
+      static synchronized void sync() {
+            if (!started) return;
+
+            RedisAPI api = RedisAPI.getInstance();
+            boolean retry = false;
+            Map<HostAndPort, Map<Integer, List<String>>> desired = new HashMap<>();
+            for (String name : ChannelRegistry.getChannelNames()) {
+                  int slot = JedisClusterCRC16.getSlot(name);
+                  HostAndPort node;
+                  try {
+                        node = api.nodeForSlot(slot);
+                  } catch (Exception e) {
+                        // Kept on the node it is subscribed on, if any, until the slot map can be read again
+                        node = subscribedNode(name);
+                        retry = true;
+                        System.out.println("[WARNING]: Failed to find the cluster node serving the channel " + name + ", retrying: " + e.getMessage());
+                        if (node == null) continue;
+                  }
+                  desired.computeIfAbsent(node, ignored -> new TreeMap<>())
+                          .computeIfAbsent(slot, ignored -> new ArrayList<>())
+                          .add(name);
+            }
+
+            for (ShardedSubscriber subscriber : List.copyOf(NODES.values())) {
+                  if (!desired.containsKey(subscriber.node)) {
+                        NODES.remove(subscriber.node);
+                        subscriber.close();
+                  }
+            }
+
+            for (Map.Entry<HostAndPort, Map<Integer, List<String>>> entry : desired.entrySet()) {
+                  HostAndPort node = entry.getKey();
+                  ShardedSubscriber subscriber = NODES.get(node);
+                  try {
+                        if (subscriber == null) {
+                              // The remaining slots are subscribed once Redis confirmed the first one
+                              subscriber = new ShardedSubscriber(node, api.isBinaryMode(), entry.getValue().values().iterator().next());
+                              NODES.put(node, subscriber);
+                              subscriber.thread.start();
+                        } else {
+                              subscriber.update(entry.getValue());
+                        }
+                  } catch (Exception e) {
+                        // What the connection is subscribed to is unknown now, a new one is opened on the retry
+                        if (subscriber != null && NODES.remove(node, subscriber)) subscriber.close();
+                        retry = true;
+                        System.out.println("[WARNING]: Failed to sync the subscriptions on cluster node " + node + ", retrying: " + e.getMessage());
+                  }
+            }
+
+            if (retry) SubscriptionManager.requestSync(RECONNECT_DELAY_MILLIS);
+      }
+
+      /**
+       * @return the node whose connection is subscribed to the channel, or null. Called while holding the class lock.
+       */
+      private static HostAndPort subscribedNode(String channel) {
+            for (ShardedSubscriber subscriber : NODES.values()) {
+                  if (subscriber.subscribed.contains(channel)) return subscriber.node;
+            }
+            return null;
+      }
+
+      /**
+       * Subscribes to the channels of the given slots this connection is not subscribed to yet, and unsubscribes from
+       * every other channel. Called while holding the class lock.
+       */
+      private void update(Map<Integer, List<String>> slots) {
+            if (!live) return;
+
+            Set<String> desired = new HashSet<>();
+            for (List<String> channels : slots.values()) {
+                  List<String> subscribe = new ArrayList<>();
+                  for (String channel : channels) {
+                        desired.add(channel);
+                        if (!subscribed.contains(channel)) subscribe.add(channel);
+                  }
+                  if (subscribe.isEmpty()) continue;
+
+                  subscribed.addAll(subscribe);
+                  if (binary) binaryPubSub.ssubscribe(encode(subscribe));
+                  else pubSub.ssubscribe(subscribe.toArray(String[]::new));
+            }
+
+            Map<Integer, List<String>> unsubscribe = new TreeMap<>();
+            for (String channel : subscribed) {
+                  if (!desired.contains(channel)) {
+                        unsubscribe.computeIfAbsent(JedisClusterCRC16.getSlot(channel), ignored -> new ArrayList<>()).add(channel);
+                  }
+            }
+            for (List<String> channels : unsubscribe.values()) {
+                  // Removed first, so the confirmation isn't mistaken for a slot migration
+                  channels.forEach(subscribed::remove);
+                  if (binary) binaryPubSub.sunsubscribe(encode(channels));
+                  else pubSub.sunsubscribe(channels.toArray(String[]::new));
+            }
+      }
+
+      @Override
+      HostAndPort address(RedisAPI api) {
+            return node;
+      }
+
+      @Override
+      void subscribe(Jedis jedis) {
+            if (binary) {
+                  binaryPubSub = new BinaryJedisShardedPubSub() {
+                        @Override
+                        public void onSMessage(byte[] channel, byte[] message) {
+                              EventRegistry.handleBinary(channel, message);
+                        }
+
+                        @Override
+                        public void onSSubscribe(byte[] channel, int subscribedChannels) {
+                              subscribed(new String(channel, StandardCharsets.UTF_8));
+                        }
+
+                        @Override
+                        public void onSUnsubscribe(byte[] channel, int subscribedChannels) {
+                              unsubscribed(new String(channel, StandardCharsets.UTF_8));
+                        }
+                  };
+                  binaryPubSub.proceed(jedis.getConnection(), encode(initialChannels));
+            } else {
+                  pubSub = new JedisShardedPubSub() {
+                        @Override
+                        public void onSMessage(String channel, String message) {
+                              EventRegistry.handleAll(channel, message);
+                        }
+
+                        @Override
+                        public void onSSubscribe(String channel, int subscribedChannels) {
+                              subscribed(channel);
+                        }
+
+                        @Override
+                        public void onSUnsubscribe(String channel, int subscribedChannels) {
+                              unsubscribed(channel);
+                        }
+                  };
+                  pubSub.proceed(jedis.getConnection(), initialChannels);
+            }
+      }
+
+      @Override
+      void unsubscribeAll() {
+            if (binaryPubSub != null && binaryPubSub.isSubscribed()) binaryPubSub.sunsubscribe();
+            if (pubSub != null && pubSub.isSubscribed()) pubSub.sunsubscribe();
+      }
+
+      @Override
+      void lost(RedisAPI api, Exception e) {
+            api.getKeyValueStore().subscriptionLost();
+            System.out.println("[WARNING]: Lost the subscriber connection to cluster node " + node + ", reconnecting: " + e.getMessage());
+      }
+
+      @Override
+      void reconnecting(RedisAPI api) {
+            // The channels are subscribed again on whichever node now owns them
+            api.refreshSlots();
+      }
+
+      @Override
+      void detach() {
+            if (NODES.get(node) == this) NODES.remove(node);
+      }
+
+      private void unsubscribed(String channel) {
+            synchronized (ShardedSubscriber.class) {
+                  // Channels unsubscribed on request were already removed, anything else was moved off this node
+                  if (!subscribed.remove(channel)) return;
+            }
+            // Invalidations published while the channel moves are missed
+            if (KeyValueStore.INVALIDATION_CHANNEL.equals(channel)) RedisAPI.getInstance().getKeyValueStore().subscriptionLost();
+            RedisAPI.getInstance().refreshSlots();
+            SubscriptionManager.requestSync();
+      }
+}
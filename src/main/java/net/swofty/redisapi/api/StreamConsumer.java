@@ -0,0 +1,318 @@
+package net.swofty.redisapi.api;
+
+import net.swofty.redisapi.events.EventRegistry;
+import net.swofty.redisapi.util.MessageOrigin;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reads a durable channel from its Redis Stream through a consumer group, on a dedicated connection and thread of its
+ * own. Entries are read in batches, handed to the dispatcher of the channel like pub/sub messages and acknowledged in
+ * batches once their handler has finished. Entries left pending by dead consumers are claimed back periodically.
+ */
+final class StreamConsumer {
+      static final String FILTER_FIELD = "filter";
+      static final String MESSAGE_FIELD = "message";
+
+      private static final long RECONNECT_DELAY_MILLIS = 1_000;
+      private static final long LANE_FULL_RETRY_MILLIS = 50;
+      private static final int CLAIM_BATCHES = 8;
+
+      /**
+       * Consumer name used when neither a consumer nor a filter id is set. The host name tells instances on different
+       * machines apart and the origin id of the process tells apart instances on the same host, as containers all
+       * run as the same pid
+       */
+      private static final String DEFAULT_CONSUMER = "instance-" + hostName() + "-" + Long.toUnsignedString(MessageOrigin.ID, 36);
+
+      /**
+       * Consumers of every durable channel by channel name, guarded by the class lock
+       */
+      private static final Map<String, StreamConsumer> CONSUMERS = new HashMap<>();
+      private static boolean started;
+
+      private final RedisChannel channel;
+      private final StreamOptions options;
+      private final Map<String, Queue<StreamEntryID>> acknowledged = new ConcurrentHashMap<>();
+      private final Set<String> groupsCreated = new HashSet<>();
+
+      /**
+       * Entries handed to the dispatcher whose handlers have not finished yet. Claiming them back would deliver them
+       * a second time, so they are skipped when claimed
+       */
+      private final Set<EntryId> inFlight = ConcurrentHashMap.newKeySet();
+
+      /**
+       * Entries read while the lane of the channel was full, handed over again before anything new is read. Only
+       * used by the consumer thread
+       */
+      private final ArrayDeque<ReadEntry> backlog = new ArrayDeque<>();
+      private final Thread thread;
+      private volatile boolean running = true;
+
+      private StreamConsumer(RedisChannel channel) {
+            this.channel = channel;
+            this.options = channel.getOptions().getStream();
+            this.thread = new Thread(this::run, "AtlasRedisAPI-Stream-" + channel.channelName);
+            this.thread.setDaemon(true);
+      }
+
+      /**
+       * Starts consuming every durable channel registered so far, and any registered afterwards.
+       */
+      static synchronized void startAll() {
+            started = true;
+            for (RedisChannel channel : ChannelRegistry.getRegisteredChannels()) {
+                  if (channel.getOptions().isDurable()) start(channel);
+            }
+      }
+
+      /**
+       * Starts consuming a durable channel if consumers have been started and it isn't consumed yet.
+       */
+      static synchronized void start(RedisChannel channel) {
+            if (!started || CONSUMERS.containsKey(channel.channelName)) return;
+
+            StreamConsumer consumer = new StreamConsumer(channel);
+            CONSUMERS.put(channel.channelName, consumer);
+            consumer.thread.start();
+      }
+
+      /**
+       * Stops consuming a durable channel within the block time of its reads. Entries whose handlers have finished by
+       * then are acknowledged, the rest are redelivered to another consumer once they have been idle long enough.
+       */
+      static synchronized void stop(String channelName) {
+            StreamConsumer consumer = CONSUMERS.remove(channelName);
+            if (consumer != null) consumer.close();
+      }
+
+      /**
+       * Stops every consumer, consumers are not started again until {@link #startAll()} is called.
+       */
+      static synchronized void stopAll() {
+            started = false;
+            CONSUMERS.values().forEach(StreamConsumer::close);
+            CONSUMERS.clear();
+      }
+
+      /**
+       * @param channel  the durable channel
+       * @param filterId the filter id the message is sent to
+       * @return the key of the stream messages sent to this filter id are appended to
+       */
+      static String streamKey(RedisChannel channel, String filterId) {
+            if (filterId.equals("all") || filterId.equals("none")) return channel.channelName;
+            // In a cluster both streams are read in one command, so the sub-stream is hash tagged onto the slot of the channel
+            if (RedisAPI.getInstance().isCluster()) return ChannelRegistry.getFilterRoutedName("{" + channel.channelName + "}", filterId);
+            return ChannelRegistry.getFilterRoutedName(channel.channelName, filterId);
+      }
+
+      private void close() {
+            running = false;
+            thread.interrupt();
+      }
+
+      private void run() {
+            long nextClaim = 0;
+            while (running) {
+                  try (Jedis connection = connect()) {
+                        groupsCreated.clear();
+
+                        while (running) {
+                              acknowledge(connection);
+
+                              // Nothing new is read until the lane has taken every entry it refused
+                              if (!redeliverBacklog()) {
+                                    Thread.sleep(LANE_FULL_RETRY_MILLIS);
+                                    continue;
+                              }
+
+                              Map<String, StreamEntryID> streams = streams(connection);
+                              if (System.currentTimeMillis() >= nextClaim) {
+                                    reclaim(connection, streams.keySet());
+                                    nextClaim = System.currentTimeMillis() + options.getClaimInterval().toMillis();
+                                    if (!backlog.isEmpty()) continue;
+                              }
+
+                              XReadGroupParams params = XReadGroupParams.xReadGroupParams()
+                                      .count(options.getBatchSize())
+                                      .block((int) options.getBlock().toMillis());
+                              List<Map.Entry<String, List<StreamEntry>>> read = connection.xreadGroup(options.getGroup(), consumerName(), params, streams);
+                              if (read == null) continue;
+
+                              for (Map.Entry<String, List<StreamEntry>> stream : read) {
+                                    deliver(stream.getKey(), stream.getValue());
+                              }
+                        }
+                        acknowledge(connection);
+                  } catch (JedisRedirectionException e) {
+                        // The slot of the stream moved to another node of the cluster
+                        if (!running) break;
+                        RedisAPI.getInstance().refreshSlots();
+                  } catch (JedisDataException e) {
+                        // The stream or group was deleted, they are recreated on the next connection
+                        if (!running) break;
+                        System.out.println("[WARNING]: Durable channel '" + channel.channelName + "' failed to read its stream: " + e.getMessage());
+                  } catch (InterruptedException e) {
+                        break;
+                  } catch (Exception e) {
+                        if (!running) break;
+                        System.out.println("[WARNING]: Durable channel '" + channel.channelName + "' lost its connection, reconnecting: " + e.getMessage());
+                  }
+
+                  try {
+                        Thread.sleep(RECONNECT_DELAY_MILLIS);
+                  } catch (InterruptedException e) {
+                        break;
+                  }
+            }
+      }
+
+      private Jedis connect() {
+            RedisAPI api = RedisAPI.getInstance();
+            int timeout = (int) (options.getBlock().toMillis() + api.getClientConfig().getSocketTimeoutMillis());
+            HostAndPort node = api.nodeForSlot(JedisClusterCRC16.getSlot(channel.channelName));
+
+            return new Jedis(node, api.blockingClientConfig(timeout));
+      }
+
+      /**
+       * @return every stream this instance reads, the channel itself and its sub-stream for the current filter id,
+       * creating their groups if needed
+       */
+      private Map<String, StreamEntryID> streams(Jedis connection) {
+            Map<String, StreamEntryID> streams = new LinkedHashMap<>();
+            streams.put(channel.channelName, StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+
+            String filterId = RedisAPI.getInstance().getFilterId();
+            if (filterId != null) streams.put(streamKey(channel, filterId), StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+
+            for (String key : streams.keySet()) {
+                  if (groupsCreated.contains(key)) continue;
+                  try {
+                        connection.xgroupCreate(key, options.getGroup(), StreamEntryID.XGROUP_LAST_ENTRY, true);
+                  } catch (JedisDataException e) {
+                        if (!e.getMessage().startsWith("BUSYGROUP")) throw e;
+                  }
+                  groupsCreated.add(key);
+            }
+            return streams;
+      }
+
+      private void reclaim(Jedis connection, Set<String> keys) throws InterruptedException {
+            XAutoClaimParams params = XAutoClaimParams.xAutoClaimParams().count(options.getBatchSize());
+            long minIdle = options.getClaimIdle().toMillis();
+
+            for (String key : keys) {
+                  StreamEntryID cursor = StreamEntryID.MINIMUM_ID;
+                  for (int i = 0; i < CLAIM_BATCHES; i++) {
+                        Map.Entry<StreamEntryID, List<StreamEntry>> claimed = connection.xautoclaim(key, options.getGroup(), consumerName(), minIdle, cursor, params);
+                        deliver(key, claimed.getValue());
+
+                        cursor = claimed.getKey();
+                        if (cursor == null || cursor.equals(StreamEntryID.MINIMUM_ID)) break;
+                  }
+            }
+      }
+
+      private void deliver(String key, List<StreamEntry> entries) throws InterruptedException {
+            for (StreamEntry entry : entries) {
+                  EntryId id = new EntryId(key, entry.getID());
+                  // Entries of this consumer are claimed back while they still wait in the lane
+                  if (inFlight.contains(id)) continue;
+
+                  // Entries deleted while pending are claimed without any fields, they can only be acknowledged
+                  Map<String, String> fields = entry.getFields();
+                  String message = fields == null ? null : fields.get(MESSAGE_FIELD);
+                  if (message == null) {
+                        acknowledged(key, entry.getID());
+                        continue;
+                  }
+
+                  // Handlers receive the same format as they would through pub/sub
+                  String filterId = fields.getOrDefault(FILTER_FIELD, "none");
+                  ReadEntry read = new ReadEntry(id, filterId + ";" + message);
+                  if (!backlog.isEmpty() || !handOver(read)) backlog.addLast(read);
+            }
+      }
+
+      /**
+       * Hands the entries refused earlier to the lane again, in the order they were read.
+       *
+       * @return true once the backlog is empty
+       */
+      private boolean redeliverBacklog() throws InterruptedException {
+            while (!backlog.isEmpty()) {
+                  if (!handOver(backlog.peekFirst())) return false;
+                  backlog.pollFirst();
+            }
+            return true;
+      }
+
+      /**
+       * @return false if the lane of the channel was full and refused the entry
+       */
+      private boolean handOver(ReadEntry entry) throws InterruptedException {
+            EntryId id = entry.id();
+            inFlight.add(id);
+            boolean dispatched = EventRegistry.handleDurable(channel, entry.message(), () -> acknowledged(id.key(), id.id()), () -> inFlight.remove(id));
+            if (!dispatched) inFlight.remove(id);
+            return dispatched;
+      }
+
+      private void acknowledged(String key, StreamEntryID id) {
+            acknowledged.computeIfAbsent(key, ignored -> new ConcurrentLinkedQueue<>()).add(id);
+      }
+
+      private void acknowledge(Jedis connection) {
+            acknowledged.forEach((key, queue) -> {
+                  List<StreamEntryID> ids = new ArrayList<>();
+                  for (StreamEntryID id; (id = queue.poll()) != null; ) ids.add(id);
+                  if (!ids.isEmpty()) connection.xack(key, options.getGroup(), ids.toArray(new StreamEntryID[0]));
+            });
+      }
+
+      private String consumerName() {
+            if (options.getConsumer() != null) return options.getConsumer();
+            String filterId = RedisAPI.getInstance().getFilterId();
+            return filterId != null ? filterId : DEFAULT_CONSUMER;
+      }
+
+      private static String hostName() {
+            try {
+                  return InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                  return "unknown";
+            }
+      }
+
+      private record EntryId(String key, StreamEntryID id) {
+      }
+
+      /**
+       * An entry read from one of the streams of the channel, kept in the backlog while its lane refuses it
+       */
+      private record ReadEntry(EntryId id, String message) {
+      }
+}
@@ -0,0 +1,66 @@
+package net.swofty.redisapi.api;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Settings of a durable channel, which is backed by a Redis Stream and consumer group instead of plain pub/sub. Set
+ * these through {@link ChannelOptions.ChannelOptionsBuilder#stream(StreamOptions)} to make a channel durable.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class StreamOptions {
+
+      /**
+       * Settings used by durable channels that don't need anything else
+       */
+      public static final StreamOptions DEFAULT = StreamOptions.builder().build();
+
+      /**
+       * Consumer group this instance reads the stream as. Every message is handled by a single instance of each group,
+       * so instances sharing a group split the work of the channel between them, while instances that should each
+       * receive every message need groups of their own.
+       */
+      @Builder.Default
+      private final String group = "atlas";
+
+      /**
+       * Name this instance consumes as within its group, when null the filter id of the instance is used, or a name
+       * made of the host name and a random id of the process if it has none. This should stay the same across
+       * restarts so entries left pending by the previous run are picked up again
+       */
+      private final String consumer;
+
+      /**
+       * Maximum amount of entries read from the stream in a single call
+       */
+      @Builder.Default
+      private final int batchSize = 128;
+
+      /**
+       * How long a read waits for new entries before returning empty, this must stay below the socket timeout
+       */
+      @Builder.Default
+      private final Duration block = Duration.ofSeconds(1);
+
+      /**
+       * Approximate maximum length the stream is trimmed to when publishing, 0 disables trimming
+       */
+      @Builder.Default
+      private final long maxLength = 100_000;
+
+      /**
+       * How long an entry may stay pending before another consumer of the group claims it, this is what recovers the
+       * entries of consumers that died and of handlers that threw
+       */
+      @Builder.Default
+      private final Duration claimIdle = Duration.ofSeconds(30);
+
+      /**
+       * How often pending entries of other consumers are checked for reclaiming
+       */
+      @Builder.Default
+      private final Duration claimInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,143 @@
+package net.swofty.redisapi.api;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A dedicated subscriber connection and the thread reading from it, the lifecycle shared by {@link ShardedSubscriber}
+ * and {@link PrioritySubscriber}. The connection is opened subscribed to its initial channels and only sent further
+ * commands once Redis confirmed the first subscription. When the connection is lost it waits before asking
+ * {@link SubscriptionManager} for a sync, which subscribes its channels again on a new connection.
+ */
+abstract class SubscriberConnection {
+      static final long RECONNECT_DELAY_MILLIS = 1_000;
+
+      /**
+       * Guards the subscriptions of every connection of the subclass
+       */
+      private final Object lock;
+      final boolean binary;
+      final String[] initialChannels;
+
+      /**
+       * Channels this connection is subscribed to or subscribing to, guarded by the lock
+       */
+      final Set<String> subscribed = new HashSet<>();
+      final Thread thread;
+      volatile boolean running = true;
+
+      /**
+       * Set once Redis confirmed the first subscription, guarded by the lock. Until then the connection can't be sent
+       * any other command
+       */
+      boolean live;
+
+      SubscriberConnection(Object lock, boolean binary, String[] initialChannels, String threadName) {
+            this.lock = lock;
+            this.binary = binary;
+            this.initialChannels = initialChannels;
+            this.subscribed.addAll(Arrays.asList(initialChannels));
+            this.thread = new Thread(this::run, threadName);
+            this.thread.setDaemon(true);
+      }
+
+      /**
+       * @return the server the connection is opened to
+       */
+      abstract HostAndPort address(RedisAPI api);
+
+      /**
+       * Subscribes the connection to the initial channels, blocking until it is unsubscribed from every channel.
+       */
+      abstract void subscribe(Jedis jedis);
+
+      /**
+       * Unsubscribes from every channel, which ends {@link #subscribe(Jedis)}.
+       */
+      abstract void unsubscribeAll();
+
+      /**
+       * Called when the connection was lost while still running, before waiting to reconnect.
+       */
+      abstract void lost(RedisAPI api, Exception e);
+
+      /**
+       * Called once the reconnect delay after a lost connection passed, right before a sync is requested.
+       */
+      void reconnecting(RedisAPI api) {
+      }
+
+      /**
+       * Forgets this connection so the next sync opens a new one, called while holding the lock.
+       */
+      abstract void detach();
+
+      void close() {
+            running = false;
+            try {
+                  unsubscribeAll();
+            } catch (Exception ignored) {
+            }
+            thread.interrupt();
+      }
+
+      private void run() {
+            RedisAPI api = RedisAPI.getInstance();
+            boolean failed = false;
+            try (Jedis jedis = new Jedis(address(api), api.blockingClientConfig(0))) {
+                  subscribe(jedis);
+            } catch (Exception e) {
+                  if (running) {
+                        failed = true;
+                        lost(api, e);
+                  }
+            }
+
+            if (failed) {
+                  try {
+                        Thread.sleep(RECONNECT_DELAY_MILLIS);
+                  } catch (InterruptedException e) {
+                        return;
+                  }
+                  api.getMetrics().recordSubscriberReconnect();
+                  reconnecting(api);
+            }
+
+            synchronized (lock) {
+                  detach();
+            }
+            // Channels still registered are subscribed again on a new connection
+            if (running) SubscriptionManager.requestSync();
+      }
+
+      /**
+       * Called by the connection for every subscription Redis confirmed.
+       */
+      void subscribed(String channel) {
+            RedisAPI.getInstance().getKeyValueStore().subscribed(channel);
+            synchronized (lock) {
+                  if (live) return;
+                  live = true;
+            }
+            // Picks up the rest of the channels and channels registered while the connection was being set up
+            SubscriptionManager.requestSync();
+      }
+
+      static byte[][] encode(List<String> channels) {
+            byte[][] encoded = new byte[channels.size()][];
+            for (int i = 0; i < encoded.length; i++) {
+                  encoded[i] = channels.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            return encoded;
+      }
+
+      static byte[][] encode(String[] channels) {
+            return encode(Arrays.asList(channels));
+      }
+}
@@ -0,0 +1,142 @@
+package net.swofty.redisapi.api;
+
+import net.swofty.redisapi.events.EventRegistry;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the channels and patterns the live subscriber connection is subscribed to in sync with the routing tables,
+ * or the sharded subscriptions of every node through {@link ShardedSubscriber} in cluster mode. Changes to the
+ * routing table only request a sync, the sync itself runs shortly after so that many registrations happening
+ * together are sent as a single SUBSCRIBE or UNSUBSCRIBE command.
+ */
+final class SubscriptionManager {
+      private static final long SYNC_DELAY_MILLIS = 2;
+
+      private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AtlasRedisAPI-Subscriptions");
+            thread.setDaemon(true);
+            return thread;
+      });
+      private static final AtomicBoolean SYNC_SCHEDULED = new AtomicBoolean();
+
+      /**
+       * Channels sent to Redis on the current subscriber connection, guarded by the class lock
+       */
+      private static final Set<String> SUBSCRIBED = new HashSet<>();
+
+      /**
+       * Patterns sent to Redis on the current subscriber connection, guarded by the class lock
+       */
+      private static final Set<String> SUBSCRIBED_PATTERNS = new HashSet<>();
+
+      private SubscriptionManager() {
+      }
+
+      /**
+       * Called by the subscriber thread right before it subscribes a new connection to the given channels.
+       */
+      static synchronized void connecting(String[] channels) {
+            SUBSCRIBED.clear();
+            SUBSCRIBED.addAll(Arrays.asList(channels));
+            SUBSCRIBED_PATTERNS.clear();
+      }
+
+      /**
+       * Requests the subscriptions to be brought in line with the routing table, requests made close together are
+       * coalesced into one sync.
+       */
+      static void requestSync() {
+            if (SYNC_SCHEDULED.compareAndSet(false, true)) {
+                  SCHEDULER.schedule(SubscriptionManager::sync, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+      }
+
+      /**
+       * Requests a sync once the given delay passed, used to retry a sync that could not reach Redis.
+       */
+      static void requestSync(long delayMillis) {
+            SCHEDULER.schedule(() -> requestSync(), delayMillis, TimeUnit.MILLISECONDS);
+      }
+
+      private static synchronized void sync() {
+            SYNC_SCHEDULED.set(false);
+
+            RedisAPI api = RedisAPI.getInstance();
+            if (api != null && api.isCluster()) {
+                  try {
+                        ShardedSubscriber.sync();
+                  } catch (Exception e) {
+                        e.printStackTrace();
+                  }
+                  return;
+            }
+
+            try {
+                  PrioritySubscriber.sync();
+            } catch (Exception e) {
+                  e.printStackTrace();
+            }
+
+            JedisPubSub pubSub = EventRegistry.pubSub;
+            BinaryJedisPubSub binaryPubSub = EventRegistry.binaryPubSub;
+            boolean textLive = pubSub != null && pubSub.isSubscribed();
+            boolean binaryLive = binaryPubSub != null && binaryPubSub.isSubscribed();
+            // Not connected yet, the subscriber picks up the routing table and syncs again once it is
+            if (!textLive && !binaryLive) return;
+
+            try {
+                  syncNames(ChannelRegistry.getSharedChannelNames(), SUBSCRIBED, false, textLive ? pubSub : null, binaryPubSub);
+                  syncNames(ChannelRegistry.getPatterns(), SUBSCRIBED_PATTERNS, true, textLive ? pubSub : null, binaryPubSub);
+            } catch (Exception e) {
+                  e.printStackTrace();
+            }
+      }
+
+      private static void syncNames(String[] names, Set<String> subscribed, boolean patterns, JedisPubSub pubSub, BinaryJedisPubSub binaryPubSub) {
+            Set<String> desired = new HashSet<>(Arrays.asList(names));
+            List<String> subscribe = new ArrayList<>();
+            for (String name : desired) {
+                  if (!subscribed.contains(name)) subscribe.add(name);
+            }
+            List<String> unsubscribe = new ArrayList<>();
+            for (String name : subscribed) {
+                  if (!desired.contains(name)) unsubscribe.add(name);
+            }
+
+            if (!subscribe.isEmpty()) {
+                  if (pubSub != null) {
+                        String[] batch = subscribe.toArray(String[]::new);
+                        if (patterns) pubSub.psubscribe(batch);
+                        else pubSub.subscribe(batch);
+                  } else {
+                        byte[][] batch = SubscriberConnection.encode(subscribe);
+                        if (patterns) binaryPubSub.psubscribe(batch);
+                        else binaryPubSub.subscribe(batch);
+                  }
+                  subscribed.addAll(subscribe);
+            }
+            if (!unsubscribe.isEmpty()) {
+                  if (pubSub != null) {
+                        String[] batch = unsubscribe.toArray(String[]::new);
+                        if (patterns) pubSub.punsubscribe(batch);
+                        else pubSub.unsubscribe(batch);
+                  } else {
+                        byte[][] batch = SubscriberConnection.encode(unsubscribe);
+                        if (patterns) binaryPubSub.punsubscribe(batch);
+                        else binaryPubSub.unsubscribe(batch);
+                  }
+                  unsubscribe.forEach(subscribed::remove);
+            }
+      }
+}
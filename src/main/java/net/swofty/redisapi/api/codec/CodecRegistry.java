@@ -0,0 +1,47 @@
+package net.swofty.redisapi.api.codec;
+
+import java.util.ServiceLoader;
+
+/**
+ * Every codec this instance is able to decode, looked up by the id written into the envelope of a message. The JSON
+ * and compact codecs are always present, other codecs are added through {@link #register(MessageCodec)} or listed
+ * as {@link MessageCodec} services.
+ */
+public final class CodecRegistry {
+    private static final MessageCodec[] CODECS = new MessageCodec[256];
+
+    static {
+        register(JsonMessageCodec.INSTANCE);
+        register(CompactMessageCodec.INSTANCE);
+        for (MessageCodec codec : ServiceLoader.load(MessageCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * Registers a codec so that messages encoded with it can be decoded.
+     *
+     * @param codec the codec to register
+     * @throws IllegalArgumentException if the id is 0 or already used by a different codec
+     */
+    public static synchronized void register(MessageCodec codec) {
+        int id = codec.getId() & 0xFF;
+        if (id == 0) throw new IllegalArgumentException("The codec id 0 is reserved for raw payloads");
+
+        MessageCodec existing = CODECS[id];
+        if (existing != null && existing != codec && existing.getClass() != codec.getClass())
+            throw new IllegalArgumentException("The codec id " + id + " is already used by " + existing.getClass().getName());
+        CODECS[id] = codec;
+    }
+
+    /**
+     * @param id the id written into the envelope of a message
+     * @return the codec with this id, or null if no such codec is registered
+     */
+    public static MessageCodec get(int id) {
+        return CODECS[id & 0xFF];
+    }
+}
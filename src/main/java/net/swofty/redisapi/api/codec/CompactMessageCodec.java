@@ -0,0 +1,268 @@
+package net.swofty.redisapi.api.codec;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Schema-less compact binary codec. Every value is a one byte type tag followed by its data, integers are zigzag
+ * varints and field names are interned per message, so a name is only written out the first time it appears and
+ * referenced by index afterwards. Decoding refuses messages nested deeper than {@link #MAX_DEPTH} objects and arrays.
+ */
+public final class CompactMessageCodec implements MessageCodec {
+    public static final byte ID = 2;
+    public static final CompactMessageCodec INSTANCE = new CompactMessageCodec();
+    /**
+     * Maximum amount of objects and arrays nested in one another, including the message itself
+     */
+    public static final int MAX_DEPTH = 256;
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 4;
+    private static final int STRING = 5;
+    private static final int OBJECT = 6;
+    private static final int ARRAY = 7;
+    private static final int DECIMAL = 8;
+    private static final int BIG_INTEGER = 9;
+
+    private CompactMessageCodec() {
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(JSONObject message) {
+        Writer writer = new Writer();
+        writer.writeObject(message);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public JSONObject decode(byte[] buffer, int offset, int length) {
+        Reader reader = new Reader(buffer, offset, offset + length);
+        try {
+            if (reader.readByte() != OBJECT) throw new InvalidMessageException("Compact message does not start with an object");
+            return reader.readObject(1);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new InvalidMessageException("Compact message is truncated");
+        }
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+        private final Map<String, Integer> names = new HashMap<>();
+
+        private Writer() {
+            super(256);
+        }
+
+        private void writeObject(JSONObject object) {
+            write(OBJECT);
+            writeVarint(object.length());
+            for (String key : object.keySet()) {
+                writeName(key);
+                writeValue(object.opt(key));
+            }
+        }
+
+        private void writeValue(Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                write(NULL);
+            } else if (value instanceof Boolean bool) {
+                write(bool ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                write(INTEGER);
+                writeVarint(zigzag(((Number) value).longValue()));
+            } else if (value instanceof Double || value instanceof Float) {
+                write(DOUBLE);
+                long bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) write((int) (bits >>> shift));
+            } else if (value instanceof BigInteger integer) {
+                // Small enough integers take the varint form, they read back as an int or long like any other integer
+                if (integer.bitLength() < Long.SIZE) {
+                    write(INTEGER);
+                    writeVarint(zigzag(integer.longValue()));
+                } else {
+                    write(BIG_INTEGER);
+                    writeString(integer.toString());
+                }
+            } else if (value instanceof BigDecimal) {
+                write(DECIMAL);
+                writeString(value.toString());
+            } else if (value instanceof JSONObject object) {
+                writeObject(object);
+            } else if (value instanceof JSONArray array) {
+                write(ARRAY);
+                writeVarint(array.length());
+                for (int i = 0; i < array.length(); i++) writeValue(array.opt(i));
+            } else {
+                write(STRING);
+                writeString(value.toString());
+            }
+        }
+
+        /**
+         * Names seen before are written as (index << 1) | 1, new names as (length << 1) followed by the name itself
+         */
+        private void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarint(((long) index << 1) | 1);
+                return;
+            }
+
+            names.put(name, names.size());
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarint((long) bytes.length << 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private final int end;
+        private final List<String> names = new ArrayList<>();
+        private int position;
+
+        private Reader(byte[] buffer, int position, int end) {
+            this.buffer = buffer;
+            this.position = position;
+            this.end = end;
+        }
+
+        private int readByte() {
+            if (position >= end) throw new ArrayIndexOutOfBoundsException(position);
+            return buffer[position++] & 0xFF;
+        }
+
+        private JSONObject readObject(int depth) {
+            if (depth > MAX_DEPTH) throw new InvalidMessageException("Compact message is nested deeper than " + MAX_DEPTH + " levels");
+            int length = (int) readVarint();
+            JSONObject object = new JSONObject();
+            for (int i = 0; i < length; i++) {
+                String name = readName();
+                object.put(name, readValue(depth));
+            }
+            return object;
+        }
+
+        /**
+         * @param depth the depth of the object or array holding the value
+         */
+        private Object readValue(int depth) {
+            int type = readByte();
+            switch (type) {
+                case NULL:
+                    return JSONObject.NULL;
+                case FALSE:
+                    return false;
+                case TRUE:
+                    return true;
+                case INTEGER: {
+                    long raw = readVarint();
+                    long value = (raw >>> 1) ^ -(raw & 1);
+                    return value == (int) value ? (Object) (int) value : (Object) value;
+                }
+                case DOUBLE: {
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) bits = (bits << 8) | readByte();
+                    return Double.longBitsToDouble(bits);
+                }
+                case STRING:
+                    return readString();
+                case DECIMAL:
+                    return readNumber(BigDecimal::new);
+                case BIG_INTEGER:
+                    return readNumber(BigInteger::new);
+                case OBJECT:
+                    return readObject(depth + 1);
+                case ARRAY: {
+                    if (depth + 1 > MAX_DEPTH) throw new InvalidMessageException("Compact message is nested deeper than " + MAX_DEPTH + " levels");
+                    int length = (int) readVarint();
+                    JSONArray array = new JSONArray();
+                    for (int i = 0; i < length; i++) array.put(readValue(depth + 1));
+                    return array;
+                }
+                default:
+                    throw new InvalidMessageException("Compact message contains an unknown value type " + type);
+            }
+        }
+
+        private <N extends Number> N readNumber(Function<String, N> parser) {
+            String value = readString();
+            try {
+                return parser.apply(value);
+            } catch (NumberFormatException e) {
+                throw new InvalidMessageException("Compact message contains a malformed number '" + value + "'");
+            }
+        }
+
+        private String readName() {
+            long header = readVarint();
+            if ((header & 1) == 1) {
+                int index = (int) (header >>> 1);
+                if (index >= names.size()) throw new InvalidMessageException("Compact message references an unknown field name");
+                return names.get(index);
+            }
+
+            int length = (int) (header >>> 1);
+            String name = readUtf8(length);
+            names.add(name);
+            return name;
+        }
+
+        private String readString() {
+            return readUtf8((int) readVarint());
+        }
+
+        private String readUtf8(int length) {
+            if (length < 0 || position + length > end) throw new ArrayIndexOutOfBoundsException(position + length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new InvalidMessageException("Compact message contains a malformed varint");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package net.swofty.redisapi.api.codec;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The default codec, messages are sent as UTF-8 JSON text.
+ */
+public final class JsonMessageCodec implements MessageCodec {
+    public static final byte ID = 1;
+    public static final JsonMessageCodec INSTANCE = new JsonMessageCodec();
+
+    private JsonMessageCodec() {
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(JSONObject message) {
+        return message.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JSONObject decode(byte[] buffer, int offset, int length) {
+        try {
+            return new JSONObject(new String(buffer, offset, length, StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new InvalidMessageException("Received message is not a valid JSON object: " + e.getMessage());
+        }
+    }
+}
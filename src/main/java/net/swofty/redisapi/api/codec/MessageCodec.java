@@ -0,0 +1,32 @@
+package net.swofty.redisapi.api.codec;
+
+import org.json.JSONObject;
+
+/**
+ * Encodes structured messages into bytes and back. Every codec has a unique id which is written into the envelope of
+ * each message it encodes, so receivers always decode with the codec the sender used regardless of what codec their
+ * own channel declares. Codecs are registered through {@link CodecRegistry#register(MessageCodec)} or discovered with
+ * {@link java.util.ServiceLoader}.
+ */
+public interface MessageCodec {
+
+    /**
+     * @return the id written into the envelope of messages encoded by this codec, 0 is reserved for raw payloads
+     */
+    byte getId();
+
+    /**
+     * @param message the message to encode
+     * @return the encoded message
+     */
+    byte[] encode(JSONObject message);
+
+    /**
+     * @param buffer the array holding the encoded message
+     * @param offset the index the encoded message starts at
+     * @param length the length of the encoded message
+     * @return the decoded message
+     * @throws net.swofty.redisapi.exceptions.InvalidMessageException if the bytes are not a valid message for this codec
+     */
+    JSONObject decode(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,28 @@
+package net.swofty.redisapi.api.kv;
+
+import net.swofty.redisapi.api.RedisAPI;
+import net.swofty.redisapi.events.HandlerScope;
+import net.swofty.redisapi.events.RedisMessagingReceiveInterface;
+import net.swofty.redisapi.util.MessageOrigin;
+import net.swofty.redisapi.util.RedisParsableMessage;
+
+@HandlerScope(HandlerScope.Scope.SINGLETON)
+public class CacheInvalidationListener implements RedisMessagingReceiveInterface {
+    @Override
+    public void onMessage(String channel, String message) {
+        NearCache cache = RedisAPI.getInstance().getKeyValueStore().getNearCache();
+        if (cache == null) return;
+
+        RedisParsableMessage msg = RedisParsableMessage.parse(message);
+        // The keys written by this instance were already invalidated before the message was published
+        if (msg.getLong("origin", 0) == MessageOrigin.ID) return;
+
+        if (msg.getBoolean("all")) {
+            cache.invalidateAll();
+            return;
+        }
+        for (String key : msg.getStringList("keys")) {
+            cache.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package net.swofty.redisapi.api.kv;
+
+import net.swofty.redisapi.api.pipeline.PipelineWriter;
+import net.swofty.redisapi.exceptions.MessageFailureException;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Sends the asynchronous commands of a {@link KeyValueStore} through a {@link PipelineWriter}. Consecutive GETs are
+ * coalesced into a single MGET and consecutive plain SETs into a single MSET, one per hash slot in cluster mode. A
+ * batch keeps accepting keys until the writer appends it to a pipeline, so every command issued while the previous
+ * pipeline is in flight is sent with the next one. Any other command closes the open batches first, so commands
+ * always reach Redis in the order they were issued.
+ */
+final class CoalescingPipeline implements AutoCloseable {
+    private final PipelineWriter writer;
+    private final boolean cluster;
+    private final int maxBatchSize;
+    private final Function<String[], CompletableFuture<Void>> onWritten;
+
+    private GetBatch openGets;
+    private SetBatch openSets;
+
+    /**
+     * @param client       the client pipelines are opened on
+     * @param cluster      whether the client is connected to a Redis Cluster
+     * @param maxBatchSize the maximum amount of commands in a pipeline and keys in a coalesced MGET or MSET
+     * @param linger       how long the writer waits for more commands before flushing a batch that is not yet full
+     * @param onWritten    called with the keys of every coalesced MSET once it was sent, its futures complete once the
+     *                     returned future does
+     */
+    CoalescingPipeline(UnifiedJedis client, boolean cluster, int maxBatchSize, Duration linger, Function<String[], CompletableFuture<Void>> onWritten) {
+        this.writer = new PipelineWriter(client, "AtlasRedisAPI-KeyValueWriter", maxBatchSize, linger);
+        this.cluster = cluster;
+        this.maxBatchSize = maxBatchSize;
+        this.onWritten = onWritten;
+    }
+
+    /**
+     * @param key   the key to read
+     * @param cache the near cache the value is stored in once read, may be null
+     * @return future completed with the value of the key, null if it does not exist
+     */
+    synchronized CompletableFuture<String> get(String key, NearCache cache) {
+        openSets = null;
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long epoch = cache == null ? 0 : cache.epoch(key);
+        if (openGets == null || !openGets.add(key, future, cache, epoch)) {
+            openGets = new GetBatch();
+            openGets.add(key, future, cache, epoch);
+            GetBatch batch = openGets;
+            writer.submit(batch::append).whenComplete((ignored, error) -> batch.complete(error));
+        }
+        return future;
+    }
+
+    /**
+     * @param key   the key to set
+     * @param value the new value
+     * @return future completed once the key was set and invalidated
+     */
+    synchronized CompletableFuture<Void> set(String key, String value) {
+        openGets = null;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (openSets == null || !openSets.add(key, value, future)) {
+            openSets = new SetBatch();
+            openSets.add(key, value, future);
+            SetBatch batch = openSets;
+            writer.submit(batch::append).whenComplete((ignored, error) -> batch.complete(error));
+        }
+        return future;
+    }
+
+    /**
+     * Reads several keys, they are coalesced with each other and with the GETs issued right before them.
+     *
+     * @param keys  the keys to read
+     * @param cache the near cache the values are stored in once read, may be null
+     * @return a future per key, in the same order
+     */
+    synchronized List<CompletableFuture<String>> getAll(List<String> keys, NearCache cache) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            futures.add(get(key, cache));
+        }
+        return futures;
+    }
+
+    /**
+     * Sets several keys, they are coalesced with each other and with the SETs issued right before them.
+     *
+     * @param values the keys and their new values
+     * @return future completed once every key was set and invalidated
+     */
+    synchronized CompletableFuture<Void> setAll(Map<String, String> values) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(values.size());
+        values.forEach((key, value) -> futures.add(set(key, value)));
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Queues a command that is not coalesced, after every command issued before it.
+     *
+     * @param command function appending the command onto the pipeline, returning its response
+     * @param <T>     the type of the reply
+     * @return future completed with the reply
+     */
+    synchronized <T> CompletableFuture<T> submit(Function<AbstractPipeline, Response<T>> command) {
+        openGets = null;
+        openSets = null;
+        return writer.submit(command);
+    }
+
+    /**
+     * @return the amount of pipelined commands waiting to be flushed, a coalesced batch counts as one
+     */
+    int getQueuedCount() {
+        return writer.getQueuedCount();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    /**
+     * Called by the writer thread when a batch is appended, after which it can't take any more keys
+     */
+    private synchronized void seal(Object batch) {
+        if (openGets == batch) openGets = null;
+        if (openSets == batch) openSets = null;
+    }
+
+    /**
+     * @return the indexes of the keys grouped by the hash slot they belong to, a single group outside cluster mode
+     */
+    private List<int[]> groupBySlot(List<String> keys) {
+        if (!cluster) {
+            int[] all = new int[keys.size()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return List.of(all);
+        }
+
+        Map<Integer, List<Integer>> slots = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            slots.computeIfAbsent(JedisClusterCRC16.getSlot(keys.get(i)), ignored -> new ArrayList<>()).add(i);
+        }
+        List<int[]> groups = new ArrayList<>(slots.size());
+        for (List<Integer> indexes : slots.values()) {
+            groups.add(indexes.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return groups;
+    }
+
+    private final class GetBatch {
+        private final List<String> keys = new ArrayList<>();
+        private final List<CompletableFuture<String>> futures = new ArrayList<>();
+        private final List<NearCache> caches = new ArrayList<>();
+        private final List<Long> epochs = new ArrayList<>();
+        private final List<int[]> groups = new ArrayList<>();
+        private final List<Response<List<String>>> responses = new ArrayList<>();
+        private boolean sealed;
+
+        /**
+         * @return false if the batch was already appended or is full
+         */
+        private boolean add(String key, CompletableFuture<String> future, NearCache cache, long epoch) {
+            if (sealed || keys.size() >= maxBatchSize) return false;
+
+            keys.add(key);
+            futures.add(future);
+            caches.add(cache);
+            epochs.add(epoch);
+            return true;
+        }
+
+        private Response<List<String>> append(AbstractPipeline pipeline) {
+            sealAll();
+            Response<List<String>> response = null;
+            for (int[] group : groupBySlot(keys)) {
+                String[] groupKeys = new String[group.length];
+                for (int i = 0; i < group.length; i++) {
+                    groupKeys[i] = keys.get(group[i]);
+                }
+                response = pipeline.mget(groupKeys);
+                groups.add(group);
+                responses.add(response);
+            }
+            return response;
+        }
+
+        private void complete(Throwable error) {
+            sealAll();
+            for (int i = 0; i < responses.size(); i++) {
+                int[] group = groups.get(i);
+                List<String> values;
+                try {
+                    values = responses.get(i).get();
+                } catch (Exception ex) {
+                    Throwable failure = error != null ? error : new MessageFailureException("Redis rejected a coalesced MGET", ex);
+                    for (int index : group) {
+                        futures.get(index).completeExceptionally(failure);
+                    }
+                    continue;
+                }
+
+                for (int j = 0; j < group.length; j++) {
+                    int index = group[j];
+                    NearCache cache = caches.get(index);
+                    if (cache != null) cache.put(keys.get(index), values.get(j), epochs.get(index));
+                    futures.get(index).complete(values.get(j));
+                }
+            }
+
+            // Keys that were never appended, because the writer was closed or appending failed part way
+            for (CompletableFuture<String> future : futures) {
+                if (!future.isDone()) future.completeExceptionally(error);
+            }
+        }
+
+        private void sealAll() {
+            synchronized (CoalescingPipeline.this) {
+                sealed = true;
+                seal(this);
+            }
+        }
+    }
+
+    private final class SetBatch {
+        private final Map<String, String> values = new LinkedHashMap<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private final List<int[]> groups = new ArrayList<>();
+        private final List<Response<String>> responses = new ArrayList<>();
+        private List<String> keys;
+        private boolean sealed;
+
+        /**
+         * @return false if the batch was already appended or is full
+         */
+        private boolean add(String key, String value, CompletableFuture<Void> future) {
+            if (sealed || (values.size() >= maxBatchSize && !values.containsKey(key))) return false;
+
+            // A key set twice in the same batch takes the last value, as it would have with separate SETs
+            values.remove(key);
+            values.put(key, value);
+            futures.add(future);
+            return true;
+        }
+
+        private Response<String> append(AbstractPipeline pipeline) {
+            sealAll();
+            keys = new ArrayList<>(values.keySet());
+            Response<String> response = null;
+            for (int[] group : groupBySlot(keys)) {
+                String[] keysValues = new String[group.length * 2];
+                for (int i = 0; i < group.length; i++) {
+                    String key = keys.get(group[i]);
+                    keysValues[i * 2] = key;
+                    keysValues[i * 2 + 1] = values.get(key);
+                }
+                response = pipeline.mset(keysValues);
+                groups.add(group);
+                responses.add(response);
+            }
+            return response;
+        }
+
+        private void complete(Throwable error) {
+            sealAll();
+            // Keys of slots that failed may still have been written on other slots, so every key is invalidated
+            CompletableFuture<Void> invalidated = keys == null ? CompletableFuture.completedFuture(null) : onWritten.apply(keys.toArray(String[]::new));
+
+            Throwable failure = error;
+            for (int i = 0; failure == null && i < responses.size(); i++) {
+                try {
+                    responses.get(i).get();
+                } catch (Exception ex) {
+                    failure = new MessageFailureException("Redis rejected a coalesced MSET", ex);
+                }
+            }
+
+            Throwable writeFailure = failure;
+            invalidated.whenComplete((ignored, invalidationFailure) -> {
+                Throwable cause = writeFailure != null ? writeFailure : invalidationFailure;
+                for (CompletableFuture<Void> future : futures) {
+                    if (cause == null) future.complete(null);
+                    else future.completeExceptionally(cause);
+                }
+            });
+        }
+
+        private void sealAll() {
+            synchronized (CoalescingPipeline.this) {
+                sealed = true;
+                seal(this);
+            }
+        }
+    }
+}
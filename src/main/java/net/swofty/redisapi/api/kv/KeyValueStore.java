@@ -0,0 +1,467 @@
+package net.swofty.redisapi.api.kv;
+
+import lombok.NonNull;
+import net.swofty.redisapi.api.ChannelOptions;
+import net.swofty.redisapi.api.ChannelPriority;
+import net.swofty.redisapi.api.ChannelRegistry;
+import net.swofty.redisapi.api.RedisAPI;
+import net.swofty.redisapi.exceptions.ChannelAlreadyRegisteredException;
+import net.swofty.redisapi.util.MessageOrigin;
+import net.swofty.redisapi.util.RedisParsableMessage;
+import org.json.JSONObject;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Reads and writes plain keys and hashes through the client of a {@link RedisAPI}, get one with
+ * {@link RedisAPI#getKeyValueStore()}. With {@link #enableNearCache(NearCacheOptions)}, values read are kept in a
+ * {@link NearCache} so reads of hot keys don't cost a round trip. Every write made through this store is followed by
+ * an invalidation on the {@value #INVALIDATION_CHANNEL} channel which removes the key from the near cache of every
+ * instance, keys written by anything else have to be invalidated with {@link #invalidate(String...)}.
+ * <p>
+ * The asynchronous methods never block, they are sent by a single writer thread in pipelines. Consecutive GETs and
+ * plain SETs issued while the previous pipeline is in flight are coalesced into a single MGET or MSET, so loading
+ * thousands of keys at once only costs a handful of round trips. Futures of writes complete once the invalidation
+ * following the write was published, and fail if it could not be even though the write itself went through. Futures
+ * are completed on the writer or publisher threads, long running work should be moved off them with the
+ * {@code *Async} stages of {@link CompletableFuture}.
+ */
+public final class KeyValueStore {
+    public static final String INVALIDATION_CHANNEL = "internal-cache-invalidation";
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1_024;
+
+    /**
+     * Invalidations are control traffic, a stale read lasts until they arrive
+     */
+    private static final ChannelOptions INVALIDATION_OPTIONS = ChannelOptions.builder().priority(ChannelPriority.HIGH).build();
+
+    private final RedisAPI api;
+    private volatile NearCache nearCache;
+    private volatile CoalescingPipeline pipeline;
+
+    /**
+     * Whether the subscriber connection has confirmed its subscription to the invalidation channel, the near cache
+     * only caches values while it has
+     */
+    private volatile boolean invalidationsSubscribed;
+
+    /**
+     * Created by the {@link RedisAPI} it belongs to
+     */
+    public KeyValueStore(@NonNull RedisAPI api) {
+        this.api = api;
+    }
+
+    /**
+     * Starts caching values read through this store, replacing the current near cache. This registers the
+     * invalidation channel, values are cached once the subscriber connection has subscribed to it.
+     *
+     * @param options the size and expiry of the cache
+     * @return the new near cache
+     */
+    public NearCache enableNearCache(@NonNull NearCacheOptions options) {
+        try {
+            api.registerChannel(INVALIDATION_CHANNEL, CacheInvalidationListener.class, INVALIDATION_OPTIONS);
+        } catch (ChannelAlreadyRegisteredException ignored) {
+        }
+
+        NearCache cache = new NearCache(options);
+        nearCache = cache;
+        if (invalidationsSubscribed) cache.resume();
+        return cache;
+    }
+
+    /**
+     * Stops caching values, invalidations are still published for the near caches of other instances.
+     */
+    public void disableNearCache() {
+        nearCache = null;
+    }
+
+    /**
+     * @return the near cache of this store, or null if it is disabled
+     */
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key, or null if it does not exist
+     */
+    public String get(@NonNull String key) {
+        NearCache cache = nearCache;
+        if (cache == null) return client().get(key);
+
+        NearCache.Entry entry = cache.get(key);
+        if (entry != null && (entry.value() == null || entry.value() instanceof String)) return (String) entry.value();
+
+        long epoch = cache.epoch(key);
+        String value = client().get(key);
+        cache.put(key, value, epoch);
+        return value;
+    }
+
+    /**
+     * @param key the key of the hash
+     * @return every field of the hash, empty if it does not exist. The returned map is read only.
+     */
+    public Map<String, String> hgetAll(@NonNull String key) {
+        NearCache cache = nearCache;
+        if (cache == null) return Map.copyOf(client().hgetAll(key));
+
+        NearCache.Entry entry = cache.get(key);
+        if (entry != null && entry.value() == null) return Map.of();
+        if (entry != null && entry.value() instanceof Map<?, ?> cached) return (Map<String, String>) cached;
+
+        long epoch = cache.epoch(key);
+        Map<String, String> value = Map.copyOf(client().hgetAll(key));
+        cache.put(key, value.isEmpty() ? null : value, epoch);
+        return value;
+    }
+
+    /**
+     * @param key the key
+     * @return future completed with the value of the key, null if it does not exist
+     */
+    public CompletableFuture<String> getAsync(@NonNull String key) {
+        NearCache cache = nearCache;
+        if (cache != null) {
+            NearCache.Entry entry = cache.get(key);
+            if (entry != null && (entry.value() == null || entry.value() instanceof String))
+                return CompletableFuture.completedFuture((String) entry.value());
+        }
+        return pipeline().get(key, cache);
+    }
+
+    /**
+     * Reads several keys, coalesced into as few MGETs as possible.
+     *
+     * @param keys the keys
+     * @return future completed with the value of every key in the given order, keys that don't exist are left out
+     */
+    public CompletableFuture<Map<String, String>> getAllAsync(@NonNull Collection<String> keys) {
+        NearCache cache = nearCache;
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            NearCache.Entry entry = cache == null ? null : cache.get(key);
+            if (entry != null && (entry.value() == null || entry.value() instanceof String)) {
+                futures.put(key, CompletableFuture.completedFuture((String) entry.value()));
+            } else {
+                misses.add(key);
+                futures.put(key, null);
+            }
+        }
+
+        List<CompletableFuture<String>> reads = pipeline().getAll(misses, cache);
+        for (int i = 0; i < misses.size(); i++) {
+            futures.put(misses.get(i), reads.get(i));
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<String, String> values = new LinkedHashMap<>();
+            futures.forEach((key, future) -> {
+                String value = future.join();
+                if (value != null) values.put(key, value);
+            });
+            return values;
+        });
+    }
+
+    /**
+     * @param key the key of the hash
+     * @return future completed with every field of the hash, empty if it does not exist
+     */
+    public CompletableFuture<Map<String, String>> hgetAllAsync(@NonNull String key) {
+        NearCache cache = nearCache;
+        if (cache == null) return pipeline().submit(pipeline -> pipeline.hgetAll(key)).thenApply(Map::copyOf);
+
+        NearCache.Entry entry = cache.get(key);
+        if (entry != null && entry.value() == null) return CompletableFuture.completedFuture(Map.of());
+        if (entry != null && entry.value() instanceof Map<?, ?> cached)
+            return CompletableFuture.completedFuture((Map<String, String>) cached);
+
+        long epoch = cache.epoch(key);
+        return pipeline().submit(pipeline -> pipeline.hgetAll(key)).thenApply(fields -> {
+            Map<String, String> value = Map.copyOf(fields);
+            cache.put(key, value.isEmpty() ? null : value, epoch);
+            return value;
+        });
+    }
+
+    /**
+     * Sets a key, coalesced with the SETs issued right before it into a single MSET.
+     *
+     * @param key   the key
+     * @param value the new value
+     * @return future completed once the key was set and its invalidation was published
+     */
+    public CompletableFuture<Void> setAsync(@NonNull String key, @NonNull String value) {
+        // Reads issued after this write must not be answered with the old value while the write is in flight
+        NearCache cache = nearCache;
+        if (cache != null) cache.invalidate(key);
+        return pipeline().set(key, value);
+    }
+
+    /**
+     * Sets several keys, coalesced into as few MSETs as possible.
+     *
+     * @param values the keys and their new values
+     * @return future completed once every key was set and their invalidation was published
+     */
+    public CompletableFuture<Void> setAllAsync(@NonNull Map<String, String> values) {
+        NearCache cache = nearCache;
+        if (cache != null) values.keySet().forEach(cache::invalidate);
+        return pipeline().setAll(values);
+    }
+
+    /**
+     * Sets a key which expires after the given time.
+     *
+     * @param key   the key
+     * @param value the new value
+     * @param ttl   how long until the key expires
+     * @return future completed once the key was set and its invalidation was published
+     */
+    public CompletableFuture<Void> setAsync(@NonNull String key, @NonNull String value, @NonNull Duration ttl) {
+        return write(pipeline -> pipeline.set(key, value, SetParams.setParams().px(ttl.toMillis())), key).thenApply(ignored -> null);
+    }
+
+    /**
+     * Sets fields of a hash.
+     *
+     * @param key    the key of the hash
+     * @param fields the fields to set
+     * @return future completed with the amount of fields that were added, once the invalidation of the hash was
+     * published
+     */
+    public CompletableFuture<Long> hsetAsync(@NonNull String key, @NonNull Map<String, String> fields) {
+        return write(pipeline -> pipeline.hset(key, fields), key);
+    }
+
+    /**
+     * Removes fields of a hash.
+     *
+     * @param key    the key of the hash
+     * @param fields the fields to remove
+     * @return future completed with the amount of fields that were removed, once the invalidation of the hash was
+     * published
+     */
+    public CompletableFuture<Long> hdelAsync(@NonNull String key, @NonNull String... fields) {
+        return write(pipeline -> pipeline.hdel(key, fields), key);
+    }
+
+    /**
+     * Deletes keys, in cluster mode every key must hash to the same slot.
+     *
+     * @param keys the keys to delete
+     * @return future completed with the amount of keys that were deleted, once their invalidation was published
+     */
+    public CompletableFuture<Long> deleteAsync(@NonNull String... keys) {
+        return write(pipeline -> pipeline.del(keys), keys);
+    }
+
+    /**
+     * Replaces the writer the asynchronous methods are sent through, commands already queued on the old writer are
+     * flushed before it stops.
+     *
+     * @param maxBatchSize the maximum amount of commands in a pipeline and keys in a coalesced MGET or MSET
+     * @param linger       how long the writer waits for more commands before flushing a batch that is not yet full,
+     *                     a zero linger only coalesces commands issued while the previous pipeline was in flight
+     */
+    public void configurePipeline(int maxBatchSize, @NonNull Duration linger) {
+        CoalescingPipeline previous;
+        synchronized (this) {
+            previous = pipeline;
+            pipeline = new CoalescingPipeline(api.getClient(), api.isCluster(), maxBatchSize, linger, this::invalidate);
+        }
+        if (previous != null) previous.close();
+    }
+
+    /**
+     * @return the amount of asynchronous commands waiting to be sent, a coalesced MGET or MSET counts as one
+     */
+    public int getQueuedCount() {
+        CoalescingPipeline current = pipeline;
+        return current == null ? 0 : current.getQueuedCount();
+    }
+
+    /**
+     * Called by the API on shutdown, flushes the asynchronous commands that are still queued.
+     */
+    public void close() {
+        CoalescingPipeline current;
+        synchronized (this) {
+            current = pipeline;
+            pipeline = null;
+        }
+        if (current != null) current.close();
+    }
+
+    /**
+     * Sets a key and invalidates it in the near cache of every instance.
+     *
+     * @param key   the key
+     * @param value the new value
+     */
+    public void set(@NonNull String key, @NonNull String value) {
+        client().set(key, value);
+        invalidate(key);
+    }
+
+    /**
+     * Sets a key which expires after the given time and invalidates it in the near cache of every instance.
+     *
+     * @param key   the key
+     * @param value the new value
+     * @param ttl   how long until the key expires
+     */
+    public void set(@NonNull String key, @NonNull String value, @NonNull Duration ttl) {
+        client().set(key, value, SetParams.setParams().px(ttl.toMillis()));
+        invalidate(key);
+    }
+
+    /**
+     * Sets fields of a hash and invalidates it in the near cache of every instance.
+     *
+     * @param key    the key of the hash
+     * @param fields the fields to set
+     * @return the amount of fields that were added
+     */
+    public long hset(@NonNull String key, @NonNull Map<String, String> fields) {
+        long added = client().hset(key, fields);
+        invalidate(key);
+        return added;
+    }
+
+    /**
+     * Sets a field of a hash and invalidates it in the near cache of every instance.
+     *
+     * @param key   the key of the hash
+     * @param field the field
+     * @param value the new value of the field
+     * @return the amount of fields that were added
+     */
+    public long hset(@NonNull String key, @NonNull String field, @NonNull String value) {
+        return hset(key, Map.of(field, value));
+    }
+
+    /**
+     * Removes fields of a hash and invalidates it in the near cache of every instance.
+     *
+     * @param key    the key of the hash
+     * @param fields the fields to remove
+     * @return the amount of fields that were removed
+     */
+    public long hdel(@NonNull String key, @NonNull String... fields) {
+        long removed = client().hdel(key, fields);
+        invalidate(key);
+        return removed;
+    }
+
+    /**
+     * Deletes keys and invalidates them in the near cache of every instance. In cluster mode every key must hash to
+     * the same slot.
+     *
+     * @param keys the keys to delete
+     * @return the amount of keys that were deleted
+     */
+    public long delete(@NonNull String... keys) {
+        long deleted = client().del(keys);
+        invalidate(keys);
+        return deleted;
+    }
+
+    /**
+     * Removes keys from the near cache of every instance, used after writing them without going through this store.
+     *
+     * @param keys the keys to invalidate
+     * @return future completing once the invalidation was published
+     */
+    public CompletableFuture<Void> invalidate(@NonNull String... keys) {
+        NearCache cache = nearCache;
+        if (cache != null) {
+            for (String key : keys) {
+                cache.invalidate(key);
+            }
+        }
+        return publish(new JSONObject().put("keys", List.of(keys)));
+    }
+
+    /**
+     * Removes every key from the near cache of every instance.
+     *
+     * @return future completing once the invalidation was published
+     */
+    public CompletableFuture<Void> invalidateAll() {
+        NearCache cache = nearCache;
+        if (cache != null) cache.invalidateAll();
+        return publish(new JSONObject().put("all", true));
+    }
+
+    /**
+     * Called by the API whenever the subscriber connection confirms the subscription to a channel.
+     *
+     * @param channel the name of the channel
+     */
+    public void subscribed(String channel) {
+        if (!INVALIDATION_CHANNEL.equals(channel)) return;
+
+        invalidationsSubscribed = true;
+        NearCache cache = nearCache;
+        if (cache != null) cache.resume();
+    }
+
+    /**
+     * Called by the API when a subscriber connection was lost, invalidations may have been missed so every cached
+     * value is dropped and nothing is cached until the invalidation channel is subscribed again.
+     */
+    public void subscriptionLost() {
+        invalidationsSubscribed = false;
+        NearCache cache = nearCache;
+        if (cache != null) cache.suspend();
+    }
+
+    private CompletableFuture<Void> publish(JSONObject invalidation) {
+        invalidation.put("origin", MessageOrigin.ID);
+        return api.publishMessage("all", ChannelRegistry.getFromName(INVALIDATION_CHANNEL, INVALIDATION_OPTIONS), RedisParsableMessage.from(invalidation));
+    }
+
+    private <T> CompletableFuture<T> write(Function<AbstractPipeline, Response<T>> command, String... keys) {
+        NearCache cache = nearCache;
+        if (cache != null) {
+            for (String key : keys) {
+                cache.invalidate(key);
+            }
+        }
+        return pipeline().submit(command).thenCompose(reply -> invalidate(keys).thenApply(ignored -> reply));
+    }
+
+    private CoalescingPipeline pipeline() {
+        CoalescingPipeline current = pipeline;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (pipeline == null)
+                pipeline = new CoalescingPipeline(api.getClient(), api.isCluster(), DEFAULT_MAX_BATCH_SIZE, Duration.ZERO, this::invalidate);
+            return pipeline;
+        }
+    }
+
+    private UnifiedJedis client() {
+        return api.getClient();
+    }
+}
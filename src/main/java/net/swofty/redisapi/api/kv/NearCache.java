@@ -0,0 +1,227 @@
+package net.swofty.redisapi.api.kv;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory copy of the values read through the {@link KeyValueStore}, kept consistent with writes made by
+ * any instance through invalidation messages. Keys are spread over segments which each evict their least recently
+ * used key, optionally guarded by a {@link FrequencySketch} so keys read only once can't push out hot ones.
+ * <p>
+ * Every key has an epoch which is bumped whenever the key is invalidated. A read remembers the epoch before it asks
+ * Redis and its result is only cached if the epoch is still the same, so a value read before a write can never be
+ * cached after the invalidation of that write was already handled.
+ */
+public final class NearCache {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int EPOCH_STRIPES = 4_096;
+
+    private final NearCacheOptions options;
+    private final long expireAfterWriteNanos;
+    private final Segment[] segments;
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Values are only cached while invalidations are known to be received, see {@link #suspend()}
+     */
+    private volatile boolean live;
+
+    NearCache(NearCacheOptions options) {
+        this.options = options;
+        this.expireAfterWriteNanos = options.getExpireAfterWrite().toNanos();
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, options.getMaximumSize() / 64)));
+        int capacity = Math.max(1, (options.getMaximumSize() + segmentCount - 1) / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity, options.isFrequencyAdmission());
+        }
+    }
+
+    /**
+     * @return the cached entry of the key, or null if it is not cached
+     */
+    Entry get(String key) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        segment.lock.lock();
+        try {
+            if (segment.sketch != null) segment.sketch.increment(key);
+            entry = segment.entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() < 0) {
+                segment.entries.remove(key);
+                entry = null;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+
+        if (entry == null) misses.increment();
+        else hits.increment();
+        return entry;
+    }
+
+    /**
+     * @return the epoch of the key, to be passed to {@link #put(String, Object, long)} once its value was read
+     */
+    long epoch(String key) {
+        return generation.get() + epochs.get(stripeOf(key));
+    }
+
+    /**
+     * Caches a value read from Redis, unless the key was invalidated since the read started.
+     *
+     * @param key   the key
+     * @param value the value, null if the key does not exist
+     * @param epoch the epoch of the key before it was read
+     */
+    void put(String key, Object value, long epoch) {
+        if (!live || (value == null && !options.isCacheMissingKeys())) return;
+
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            if (epoch(key) != epoch) return;
+
+            Map<String, Entry> entries = segment.entries;
+            if (!entries.containsKey(key) && entries.size() >= segment.capacity) {
+                Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                String victim = eldest.next().getKey();
+                if (segment.sketch != null && segment.sketch.frequency(key) <= segment.sketch.frequency(victim)) return;
+
+                eldest.remove();
+                evictions.increment();
+            }
+            entries.put(key, new Entry(value, System.nanoTime() + expireAfterWriteNanos));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a key from this cache only, use {@link KeyValueStore#invalidate(String...)} to remove it from the
+     * caches of every instance.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(String key) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            epochs.incrementAndGet(stripeOf(key));
+            segment.entries.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Removes every key from this cache only.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops caching and drops every cached value, called when the subscriber connection was lost and invalidations
+     * may have been missed. Caching resumes once an invalidation is known to be received again.
+     */
+    public void suspend() {
+        live = false;
+        invalidateAll();
+    }
+
+    /**
+     * @return true if values are currently being cached
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    void resume() {
+        live = true;
+    }
+
+    /**
+     * @return the amount of keys currently cached, including expired keys that were not read since they expired
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the hit rate and evictions of this cache since it was enabled
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(size(), hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private Segment segmentFor(String key) {
+        return segments[stripeOf(key) & (segments.length - 1)];
+    }
+
+    private static int stripeOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (EPOCH_STRIPES - 1);
+    }
+
+    /**
+     * A cached value, the value is null for keys that don't exist
+     */
+    record Entry(Object value, long expiresAt) {
+    }
+
+    /**
+     * Counters of a near cache at the time it was taken.
+     */
+    public record Snapshot(int size, long hits, long misses, long evictions, long invalidations) {
+        /**
+         * @return the fraction of reads served from memory, 0 if nothing was read yet
+         */
+        public double hitRate() {
+            long reads = hits + misses;
+            return reads == 0 ? 0 : (double) hits / reads;
+        }
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final int capacity;
+
+        private Segment(int capacity, boolean frequencyAdmission) {
+            this.capacity = capacity;
+            this.sketch = frequencyAdmission ? new FrequencySketch(capacity) : null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package net.swofty.redisapi.api.kv;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link NearCache}, build one with {@link #builder()} or use {@link #DEFAULT}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class NearCacheOptions {
+    /**
+     * Options used when the near cache is enabled without any options of its own
+     */
+    public static final NearCacheOptions DEFAULT = NearCacheOptions.builder().build();
+
+    /**
+     * Maximum amount of keys kept in memory, the least recently used keys are evicted first
+     */
+    @Builder.Default
+    private final int maximumSize = 10_000;
+
+    /**
+     * How long a value is kept after it was read from Redis. Invalidations keep cached values consistent with writes
+     * made through the API, this bounds how stale a value can get when its key expires or is written to by anything else.
+     */
+    @Builder.Default
+    private final Duration expireAfterWrite = Duration.ofMinutes(5);
+
+    /**
+     * When enabled, a key only replaces the least recently used key of a full cache if it has been read more often
+     * recently, in the style of TinyLFU. This keeps one-off reads such as scans from flushing out hot keys.
+     */
+    @Builder.Default
+    private final boolean frequencyAdmission = true;
+
+    /**
+     * When enabled, reads of keys that don't exist are cached as well, so repeated reads of a missing key are served
+     * from memory until it is written
+     */
+    @Builder.Default
+    private final boolean cacheMissingKeys = true;
+}
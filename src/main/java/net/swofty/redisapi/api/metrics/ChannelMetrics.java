@@ -0,0 +1,47 @@
+package net.swofty.redisapi.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of a single channel. Every counter is a {@link LongAdder}, so recording never contends
+ * between threads.
+ */
+public final class ChannelMetrics {
+    final LongAdder published = new LongAdder();
+    final LongAdder publishedBytes = new LongAdder();
+    final LongAdder publishFailures = new LongAdder();
+    final LongAdder received = new LongAdder();
+    final LongAdder receivedBytes = new LongAdder();
+    final LongAdder filteredOut = new LongAdder();
+    final LongAdder handlerErrors = new LongAdder();
+    final LatencyHistogram publishLatency = new LatencyHistogram();
+    final LatencyHistogram handlerTime = new LatencyHistogram();
+
+    ChannelMetrics() {
+    }
+
+    /**
+     * @return the counters and latencies of this channel at this moment
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(published.sum(), publishedBytes.sum(), publishFailures.sum(), received.sum(),
+                receivedBytes.sum(), filteredOut.sum(), handlerErrors.sum(),
+                publishLatency.snapshot(), handlerTime.snapshot());
+    }
+
+    /**
+     * @param published       messages published on the channel
+     * @param publishedBytes  bytes of the messages published on the channel, including their filter id or envelope
+     * @param publishFailures messages that could not be published
+     * @param received        messages received on the channel, including those filtered out
+     * @param receivedBytes   bytes of the messages received on the channel
+     * @param filteredOut     messages received that were addressed to a different filter id
+     * @param handlerErrors   handler runs that threw
+     * @param publishLatency  time from publishing a message until Redis acknowledged it
+     * @param handlerTime     time spent running the handler of the channel
+     */
+    public record Snapshot(long published, long publishedBytes, long publishFailures, long received, long receivedBytes,
+                           long filteredOut, long handlerErrors,
+                           LatencyHistogram.Snapshot publishLatency, LatencyHistogram.Snapshot handlerTime) {
+    }
+}
@@ -0,0 +1,182 @@
+package net.swofty.redisapi.api.metrics;
+
+import net.swofty.redisapi.api.ChannelRegistry;
+import net.swofty.redisapi.api.RedisChannel;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects the throughput and latencies of an {@link net.swofty.redisapi.api.RedisAPI} instance. Metrics are
+ * disabled by default, while disabled every recording method returns straight away without touching any counter.
+ * The recording methods are called by the API itself, users only need {@link #setEnabled(boolean)} and
+ * {@link #snapshot()}.
+ */
+public final class MetricsRegistry {
+    private final Map<String, ChannelMetrics> channels = new ConcurrentHashMap<>();
+    private final LatencyHistogram dataRequests = new LatencyHistogram();
+    private final LongAdder dataRequestTimeouts = new LongAdder();
+    private final LongAdder subscriberReconnects = new LongAdder();
+    private volatile boolean enabled;
+
+    /**
+     * @param enabled whether metrics are recorded, metrics recorded before they were disabled are kept
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param channelName the name of the channel, or the pattern of a pattern channel
+     * @return the metrics of the channel, or null if nothing has been recorded for it
+     */
+    public ChannelMetrics getChannel(String channelName) {
+        return channels.get(channelName);
+    }
+
+    /**
+     * Records a message being published, its latency is recorded once the publish completes.
+     *
+     * @param channelName the name of the channel the message is published on
+     * @param size        the size of the message as sent to Redis
+     * @param publish     starts the publish
+     * @return the future of the publish
+     */
+    public CompletableFuture<Void> recordPublish(String channelName, int size, Supplier<CompletableFuture<Void>> publish) {
+        if (!enabled) return publish.get();
+
+        ChannelMetrics metrics = channel(channelName);
+        long start = System.nanoTime();
+        CompletableFuture<Void> future = publish.get();
+        metrics.published.increment();
+        metrics.publishedBytes.add(size);
+        future.whenComplete((ignored, throwable) -> {
+            if (throwable != null) metrics.publishFailures.increment();
+            else metrics.publishLatency.record(System.nanoTime() - start);
+        });
+        return future;
+    }
+
+    /**
+     * Records a message being received by the subscriber, before its filter id is checked.
+     */
+    public void recordReceived(String channelName, int size) {
+        if (!enabled) return;
+
+        ChannelMetrics metrics = channel(channelName);
+        metrics.received.increment();
+        metrics.receivedBytes.add(size);
+    }
+
+    /**
+     * Records a received message being discarded because it was addressed to a different filter id.
+     */
+    public void recordFilteredOut(String channelName) {
+        if (enabled) channel(channelName).filteredOut.increment();
+    }
+
+    /**
+     * Wraps the handler of a message so the time it runs for and whether it throws are recorded.
+     *
+     * @return the handler itself if metrics are disabled
+     */
+    public Runnable timeHandler(String channelName, Runnable handler) {
+        if (!enabled) return handler;
+
+        ChannelMetrics metrics = channel(channelName);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                handler.run();
+            } catch (RuntimeException | Error e) {
+                metrics.handlerErrors.increment();
+                throw e;
+            } finally {
+                metrics.handlerTime.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Records the round trip of a data request, from it being sent until a response arrived.
+     */
+    public void recordDataRequest(long nanos) {
+        if (enabled) dataRequests.record(nanos);
+    }
+
+    /**
+     * Records a data request timing out without a response.
+     */
+    public void recordDataRequestTimeout() {
+        if (enabled) dataRequestTimeouts.increment();
+    }
+
+    /**
+     * Records the subscriber connection being re-established after it was lost.
+     */
+    public void recordSubscriberReconnect() {
+        if (enabled) subscriberReconnects.increment();
+    }
+
+    /**
+     * @return every metric recorded so far along with the dispatch queue of every registered channel, which is
+     * tracked even while metrics are disabled
+     */
+    public Snapshot snapshot() {
+        Map<String, ChannelMetrics.Snapshot> channelSnapshots = new TreeMap<>();
+        channels.forEach((name, metrics) -> channelSnapshots.put(name, metrics.snapshot()));
+
+        Map<String, Dispatch> dispatch = new TreeMap<>();
+        for (RedisChannel channel : ChannelRegistry.getRegisteredChannels()) {
+            dispatch.put(channel.channelName, new Dispatch(channel.dispatcher.getQueuedCount(), channel.dispatcher.getDroppedCount()));
+        }
+        for (RedisChannel channel : ChannelRegistry.getRegisteredPatternChannels()) {
+            dispatch.put(channel.channelName, new Dispatch(channel.dispatcher.getQueuedCount(), channel.dispatcher.getDroppedCount()));
+        }
+
+        return new Snapshot(Collections.unmodifiableMap(channelSnapshots), Collections.unmodifiableMap(dispatch),
+                dataRequests.snapshot(), dataRequestTimeouts.sum(), subscriberReconnects.sum());
+    }
+
+    /**
+     * Discards every metric recorded so far.
+     */
+    public void reset() {
+        channels.clear();
+        dataRequests.reset();
+        dataRequestTimeouts.reset();
+        subscriberReconnects.reset();
+    }
+
+    private ChannelMetrics channel(String channelName) {
+        ChannelMetrics metrics = channels.get(channelName);
+        return metrics != null ? metrics : channels.computeIfAbsent(channelName, ignored -> new ChannelMetrics());
+    }
+
+    /**
+     * @param channels             the metrics of every channel something has been recorded for, by channel name
+     * @param dispatch             the dispatch queue of every registered channel, by channel name
+     * @param dataRequests         the round trip of data request responses
+     * @param dataRequestTimeouts  data requests that timed out without a response
+     * @param subscriberReconnects times the subscriber connection was re-established after it was lost
+     */
+    public record Snapshot(Map<String, ChannelMetrics.Snapshot> channels, Map<String, Dispatch> dispatch,
+                           LatencyHistogram.Snapshot dataRequests, long dataRequestTimeouts, long subscriberReconnects) {
+    }
+
+    /**
+     * @param queued  the messages waiting to be handled
+     * @param dropped the messages discarded by the overflow policy of the channel since it was registered
+     */
+    public record Dispatch(int queued, long dropped) {
+    }
+}
@@ -0,0 +1,253 @@
+package net.swofty.redisapi.api.pipeline;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.swofty.redisapi.api.BatchOptions;
+import net.swofty.redisapi.api.RedisChannel;
+import net.swofty.redisapi.util.MessageEnvelope;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects the messages published on batched channels into batches, one open batch per channel and filter id. A
+ * batch is handed to the flusher once it reaches the message or byte limit of its channel, once its linger expired,
+ * or when a message that can't share it is published for the same channel and filter id. Closed batches are queued
+ * in the order they were closed and handed to the flusher by one thread at a time, so messages are always flushed in
+ * the order they were published in.
+ */
+public class MessageBatcher implements AutoCloseable {
+    private final Consumer<Batch> flusher;
+    private final Map<BatchKey, Batch> open = new HashMap<>();
+
+    /**
+     * Batches closed but not yet handed to the flusher, guarded by the instance lock
+     */
+    private final ArrayDeque<Batch> ready = new ArrayDeque<>();
+
+    /**
+     * Held while handing batches to the flusher
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    /**
+     * @param flusher sends a batch, it must complete the batch through {@link Batch#completeWith(CompletableFuture)}
+     */
+    public MessageBatcher(@NonNull Consumer<Batch> flusher) {
+        this.flusher = flusher;
+    }
+
+    /**
+     * Adds a message to the open batch of its channel and filter id.
+     *
+     * @param channel  the batched channel the message is published on
+     * @param filterId the filter id the message is sent to
+     * @param flags    the envelope flags of the message, messages with other flags are not batched together
+     * @param codec    the id of the codec the message was encoded with, only used if {@link MessageEnvelope#FLAG_CODEC} is set
+     * @param payload  the payload of the message
+     * @return future completed once the batch holding the message was sent
+     */
+    public CompletableFuture<Void> add(RedisChannel channel, String filterId, int flags, byte codec, byte[] payload) {
+        BatchOptions options = channel.getOptions().getBatching();
+        BatchKey key = new BatchKey(channel.channelName, filterId);
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            if (closed) return CompletableFuture.failedFuture(new IllegalStateException("The message batcher has been closed"));
+
+            Batch batch = open.get(key);
+            if (batch != null && !batch.accepts(flags, codec, payload.length, options)) {
+                open.remove(key);
+                ready.addLast(batch);
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(channel, filterId, flags, codec);
+                open.put(key, batch);
+                schedule(key, batch, options);
+            }
+
+            future = batch.add(payload);
+            if (batch.getSize() >= options.getMaxMessages() || batch.packedLength() >= options.getMaxBytes()) {
+                open.remove(key);
+                ready.addLast(batch);
+            }
+        }
+
+        flushReady();
+        return future;
+    }
+
+    /**
+     * Flushes every open batch right away without waiting for their linger, for example at the end of a tick.
+     */
+    public void flush() {
+        synchronized (this) {
+            ready.addAll(open.values());
+            open.clear();
+        }
+        flushReady();
+    }
+
+    /**
+     * @return the amount of messages waiting in open batches
+     */
+    public synchronized int getQueuedCount() {
+        int queued = 0;
+        for (Batch batch : open.values()) {
+            queued += batch.getSize();
+        }
+        return queued;
+    }
+
+    /**
+     * Flushes every open batch and stops accepting messages.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+
+        synchronized (this) {
+            if (scheduler != null) scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Flushes the batch once its linger expired, unless it was flushed before. Must be called while holding the lock
+     */
+    private void schedule(BatchKey key, Batch batch, BatchOptions options) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "AtlasRedisAPI-MessageBatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                if (!open.remove(key, batch)) return;
+                ready.addLast(batch);
+            }
+            flushReady();
+        }, options.getLinger().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Hands the closed batches to the flusher in the order they were closed. A thread finding another one already
+     * flushing leaves its batches to it.
+     */
+    private void flushReady() {
+        do {
+            if (!flushLock.tryLock()) return;
+            try {
+                Batch batch;
+                while ((batch = nextReady()) != null) {
+                    flush(batch);
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            // A batch may have been closed after the last poll but before the lock was released
+        } while (hasReady());
+    }
+
+    private synchronized Batch nextReady() {
+        return ready.pollFirst();
+    }
+
+    private synchronized boolean hasReady() {
+        return !ready.isEmpty();
+    }
+
+    private void flush(Batch batch) {
+        try {
+            flusher.accept(batch);
+        } catch (RuntimeException ex) {
+            batch.completeWith(CompletableFuture.failedFuture(ex));
+        }
+    }
+
+    private record BatchKey(String channel, String filterId) {
+    }
+
+    /**
+     * Messages collected for a single channel and filter id, sent together
+     */
+    public static final class Batch {
+        @Getter
+        private final RedisChannel channel;
+        @Getter
+        private final String filterId;
+        @Getter
+        private final int flags;
+        @Getter
+        private final byte codec;
+        private final List<byte[]> payloads = new ArrayList<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private int length;
+
+        private Batch(RedisChannel channel, String filterId, int flags, byte codec) {
+            this.channel = channel;
+            this.filterId = filterId;
+            this.flags = flags;
+            this.codec = codec;
+        }
+
+        /**
+         * @return the amount of messages in the batch
+         */
+        public int getSize() {
+            return payloads.size();
+        }
+
+        /**
+         * @return the messages of the batch packed into a single payload, see {@link MessageEnvelope#FLAG_BATCH}
+         */
+        public byte[] pack() {
+            return MessageEnvelope.packBatch(payloads, length);
+        }
+
+        /**
+         * Completes the future of every message of the batch along with the future of the batch being sent.
+         */
+        public void completeWith(CompletableFuture<Void> sent) {
+            sent.whenComplete((ignored, throwable) -> {
+                for (CompletableFuture<Void> future : futures) {
+                    if (throwable != null) future.completeExceptionally(throwable);
+                    else future.complete(null);
+                }
+            });
+        }
+
+        private boolean accepts(int flags, byte codec, int payloadLength, BatchOptions options) {
+            return this.flags == flags && this.codec == codec
+                    && packedLength() + MessageEnvelope.BATCH_LENGTH_BYTES + payloadLength <= options.getMaxBytes();
+        }
+
+        private int packedLength() {
+            return length + payloads.size() * MessageEnvelope.BATCH_LENGTH_BYTES;
+        }
+
+        private CompletableFuture<Void> add(byte[] payload) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            payloads.add(payload);
+            futures.add(future);
+            length += payload.length;
+            return future;
+        }
+    }
+}
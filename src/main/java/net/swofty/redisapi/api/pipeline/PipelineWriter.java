@@ -0,0 +1,173 @@
+package net.swofty.redisapi.api.pipeline;
+
+import lombok.NonNull;
+import net.swofty.redisapi.exceptions.MessageFailureException;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A single dedicated writer thread that drains queued commands and flushes them to Redis in Jedis pipelines.
+ * A batch is flushed as soon as it reaches the maximum batch size, or once the linger time has elapsed since the
+ * first command of the batch was taken, whichever happens first. Every caller's future is completed once the reply
+ * to its own command has been read.
+ */
+public class PipelineWriter implements AutoCloseable {
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(2);
+
+    private final UnifiedJedis client;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+
+    private final BlockingQueue<PipelineTask<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param client       the client that pipelines are opened on
+     * @param name         the name of the writer thread
+     * @param maxBatchSize the maximum amount of commands sent in a single pipeline
+     * @param linger       how long to wait for more commands before flushing a batch that is not yet full, may be zero
+     */
+    public PipelineWriter(@NonNull UnifiedJedis client, @NonNull String name, int maxBatchSize, @NonNull Duration linger) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("The maximum batch size must be at least 1");
+        if (linger.isNegative()) throw new IllegalArgumentException("The linger time cannot be negative");
+
+        this.client = client;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a command to be sent in the next pipeline flush.
+     *
+     * @param command function appending the command onto the pipeline, returning its response
+     * @param <T>     the type of the reply
+     * @return future completed with the reply once the pipeline containing the command has been synced
+     */
+    public <T> CompletableFuture<T> submit(@NonNull Function<AbstractPipeline, Response<T>> command) {
+        PipelineTask<T> task = new PipelineTask<>(command);
+        if (!running) {
+            task.future.completeExceptionally(new IllegalStateException("The pipeline writer has been closed"));
+            return task.future;
+        }
+
+        queue.add(task);
+        if (!running && queue.remove(task))
+            task.future.completeExceptionally(new IllegalStateException("The pipeline writer has been closed"));
+        return task.future;
+    }
+
+    /**
+     * @return the amount of commands waiting to be flushed
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting new commands, flushes whatever is still queued and waits a short while for the writer thread to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+
+        if (Thread.currentThread() == thread) return;
+        try {
+            thread.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PipelineTask<?>> batch = new ArrayList<>(maxBatchSize);
+
+        while (running) {
+            try {
+                batch.add(queue.take());
+                fill(batch);
+            } catch (InterruptedException ignored) {
+                // Woken up by close, whatever was already taken is still flushed
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void fill(List<PipelineTask<?>> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        if (lingerNanos == 0) return;
+
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+
+            PipelineTask<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void flush(List<PipelineTask<?>> batch) {
+        try (AbstractPipeline pipeline = client.pipelined()) {
+            for (PipelineTask<?> task : batch) {
+                task.append(pipeline);
+            }
+            pipeline.sync();
+        } catch (Exception ex) {
+            MessageFailureException failure = new MessageFailureException("Failed to flush pipeline to redis", ex);
+            batch.forEach(task -> task.future.completeExceptionally(failure));
+            return;
+        }
+
+        batch.forEach(PipelineTask::complete);
+    }
+
+    private static class PipelineTask<T> {
+        private final Function<AbstractPipeline, Response<T>> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private Response<T> response;
+
+        private PipelineTask(Function<AbstractPipeline, Response<T>> command) {
+            this.command = command;
+        }
+
+        private void append(AbstractPipeline pipeline) {
+            response = command.apply(pipeline);
+        }
+
+        private void complete() {
+            try {
+                future.complete(response.get());
+            } catch (Exception ex) {
+                future.completeExceptionally(new MessageFailureException("Redis rejected a pipelined command", ex));
+            }
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package net.swofty.redisapi.api.pipeline;
+
+import lombok.NonNull;
+import net.swofty.redisapi.api.OverflowPolicy;
+import net.swofty.redisapi.exceptions.PublishQueueFullException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue every published message goes through, sent by a fixed set of sender threads. A message counts
+ * against the message and byte budgets of the queue from the moment it is queued until Redis has acknowledged it, so
+ * a slow or unreachable Redis server fills the queue instead of piling up threads. What happens to a message that
+ * doesn't fit is decided by the {@link OverflowPolicy} of its channel:
+ * <ul>
+ *     <li>{@link OverflowPolicy#BLOCK} waits for room, pushing the backpressure onto the publishing thread</li>
+ *     <li>{@link OverflowPolicy#FAIL} throws a {@link PublishQueueFullException} straight away</li>
+ *     <li>{@link OverflowPolicy#DROP_NEWEST} discards the new message</li>
+ *     <li>{@link OverflowPolicy#DROP_OLDEST} discards the oldest message that was not yet handed to Redis, or the new
+ *     message if every queued message already was</li>
+ * </ul>
+ * The futures of discarded messages are completed with a {@link PublishQueueFullException}. The futures of sent
+ * messages are completed on a completion executor, by default a fixed set of threads of the queue's own, so a callback
+ * publishing again can wait for room without holding up a sender thread. Once the executor is saturated futures are
+ * completed on the thread Redis acknowledged the message on instead, callbacks that block must then be attached with
+ * the {@code *Async} stages of {@link CompletableFuture}.
+ */
+public class PublishQueue implements AutoCloseable {
+    /**
+     * Fill level below which the futures returned by {@link #onCapacity()} are completed
+     */
+    private static final double LOW_WATERMARK = 0.5;
+    /**
+     * Maximum amount of completions waiting for a thread of the default completion executor
+     */
+    private static final int COMPLETION_BACKLOG = 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Task> waiting = new ArrayDeque<>();
+    private final List<CompletableFuture<Void>> capacityWaiters = new ArrayList<>();
+    private final Thread[] senders;
+    private final Executor completions;
+    private final ThreadPoolExecutor ownCompletions;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int maxMessages;
+    private volatile long maxBytes;
+    private volatile boolean running = true;
+
+    // Guarded by the lock, these include messages that were handed to Redis but not acknowledged yet
+    private int queuedMessages;
+    private long queuedBytes;
+
+    /**
+     * @param name        the name prefix of the sender threads
+     * @param senderCount the amount of sender threads, each sends one message at a time
+     * @param maxMessages the maximum amount of messages queued or in flight
+     * @param maxBytes    the maximum total size of the messages queued or in flight
+     */
+    public PublishQueue(@NonNull String name, int senderCount, int maxMessages, long maxBytes) {
+        this(name, senderCount, maxMessages, maxBytes, null);
+    }
+
+    /**
+     * @param name        the name prefix of the sender threads
+     * @param senderCount the amount of sender threads, each sends one message at a time
+     * @param maxMessages the maximum amount of messages queued or in flight
+     * @param maxBytes    the maximum total size of the messages queued or in flight
+     * @param completions the executor futures are completed on, null for as many threads of the queue's own as there
+     *                    are sender threads. A given executor is not shut down when the queue is closed
+     */
+    public PublishQueue(@NonNull String name, int senderCount, int maxMessages, long maxBytes, Executor completions) {
+        if (senderCount < 1) throw new IllegalArgumentException("There must be at least one sender thread");
+        setLimits(maxMessages, maxBytes);
+
+        if (completions == null) {
+            AtomicInteger completionThreads = new AtomicInteger();
+            this.ownCompletions = new ThreadPoolExecutor(senderCount, senderCount, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(COMPLETION_BACKLOG), runnable -> {
+                Thread thread = new Thread(runnable, name + "-Completion-" + completionThreads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            ownCompletions.allowCoreThreadTimeOut(true);
+            this.completions = ownCompletions;
+        } else {
+            this.ownCompletions = null;
+            this.completions = completions;
+        }
+
+        this.senders = new Thread[senderCount];
+        for (int i = 0; i < senderCount; i++) {
+            senders[i] = new Thread(this::run, name + "-" + i);
+            senders[i].setDaemon(true);
+            senders[i].start();
+        }
+    }
+
+    /**
+     * Changes the budgets of the queue, messages already queued are kept even if they no longer fit.
+     *
+     * @param maxMessages the maximum amount of messages queued or in flight
+     * @param maxBytes    the maximum total size of the messages queued or in flight, a single message larger than
+     *                    this is still sent once the queue is empty
+     */
+    public void setLimits(int maxMessages, long maxBytes) {
+        if (maxMessages < 1) throw new IllegalArgumentException("The message budget must be at least 1");
+        if (maxBytes < 1) throw new IllegalArgumentException("The byte budget must be at least 1");
+
+        List<CompletableFuture<Void>> ready;
+        lock.lock();
+        try {
+            this.maxMessages = maxMessages;
+            this.maxBytes = maxBytes;
+            notFull.signalAll();
+            ready = takeCapacityWaiters();
+        } finally {
+            lock.unlock();
+        }
+        completeCapacityWaiters(ready);
+    }
+
+    /**
+     * Queues a message, applying the overflow policy if it doesn't fit.
+     *
+     * @param size   the size of the message, counted against the byte budget
+     * @param policy what to do when the message doesn't fit
+     * @param send   sends the message, ran on a sender thread and returning a future completed once Redis acknowledged it
+     * @return future completed once the message was sent, or exceptionally if it was discarded or failed to send
+     * @throws PublishQueueFullException if the message doesn't fit and the policy is {@link OverflowPolicy#FAIL}
+     */
+    public CompletableFuture<Void> submit(int size, @NonNull OverflowPolicy policy, @NonNull Supplier<CompletableFuture<Void>> send) {
+        return admit(new Task(size, send), policy, true);
+    }
+
+    /**
+     * Counts a message against the budgets like {@link #submit(int, OverflowPolicy, Supplier)}, but sends it on the
+     * calling thread once admitted instead of queueing it. Used when sending only hands the message to another queue,
+     * such as a {@link PipelineWriter}, so messages keep the order they were published in.
+     *
+     * @param size   the size of the message, counted against the byte budget
+     * @param policy what to do when the message doesn't fit
+     * @param send   hands the message off, returning a future completed once Redis acknowledged it
+     * @return future completed once the message was sent, or exceptionally if it was discarded or failed to send
+     * @throws PublishQueueFullException if the message doesn't fit and the policy is {@link OverflowPolicy#FAIL}
+     */
+    public CompletableFuture<Void> handOff(int size, @NonNull OverflowPolicy policy, @NonNull Supplier<CompletableFuture<Void>> send) {
+        return admit(new Task(size, send), policy, false);
+    }
+
+    private CompletableFuture<Void> admit(Task task, OverflowPolicy policy, boolean queue) {
+        List<Task> discarded = null;
+        List<CompletableFuture<Void>> ready = null;
+        lock.lock();
+        try {
+            while (running && !fits(task.size)) {
+                switch (policy) {
+                    case BLOCK -> {
+                        try {
+                            notFull.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            task.future.completeExceptionally(e);
+                            return task.future;
+                        }
+                    }
+                    case FAIL -> {
+                        rejected.increment();
+                        throw new PublishQueueFullException("The publish queue is full, " + queuedMessages + " messages and " + queuedBytes + " bytes are waiting");
+                    }
+                    case DROP_NEWEST -> {
+                        dropped.increment();
+                        task.future.completeExceptionally(new PublishQueueFullException("The message was dropped because the publish queue is full"));
+                        return task.future;
+                    }
+                    case DROP_OLDEST -> {
+                        Task oldest = waiting.pollFirst();
+                        if (oldest == null) {
+                            dropped.increment();
+                            task.future.completeExceptionally(new PublishQueueFullException("The message was dropped because the publish queue is full"));
+                            return task.future;
+                        }
+                        release(oldest);
+                        ready = takeCapacityWaiters();
+                        if (discarded == null) discarded = new ArrayList<>();
+                        discarded.add(oldest);
+                    }
+                }
+            }
+
+            if (!running) {
+                task.future.completeExceptionally(new IllegalStateException("The publish queue has been closed"));
+                return task.future;
+            }
+
+            queuedMessages++;
+            queuedBytes += task.size;
+            if (queue) {
+                waiting.addLast(task);
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Completed outside the lock, their callbacks may publish again
+        if (discarded != null) {
+            for (Task oldest : discarded) {
+                dropped.increment();
+                oldest.future.completeExceptionally(new PublishQueueFullException("The message was dropped to make room for a newer one"));
+            }
+        }
+        completeCapacityWaiters(ready);
+
+        if (!queue) send(task);
+        return task.future;
+    }
+
+    /**
+     * @return true if a message of the given size would currently be queued without applying an overflow policy
+     */
+    public boolean hasCapacity(int size) {
+        lock.lock();
+        try {
+            return fits(size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A credit signal for producers that throttle themselves, instead of relying on the overflow policy.
+     *
+     * @return future completed once the queue is less than half full, already completed if it is
+     */
+    public CompletableFuture<Void> onCapacity() {
+        lock.lock();
+        try {
+            if (fillLevel() < LOW_WATERMARK) return CompletableFuture.completedFuture(null);
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            capacityWaiters.add(future);
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how full the queue is from 0 to 1, the fuller of the message and byte budgets
+     */
+    public double getFillLevel() {
+        lock.lock();
+        try {
+            return fillLevel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the amount of messages queued or sent but not yet acknowledged
+     */
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queuedMessages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the total size of the messages queued or sent but not yet acknowledged
+     */
+    public long getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the amount of messages discarded by {@link OverflowPolicy#DROP_NEWEST} or {@link OverflowPolicy#DROP_OLDEST}
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the amount of messages rejected by {@link OverflowPolicy#FAIL}
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Stops accepting messages and fails every message that was not yet handed to Redis.
+     */
+    @Override
+    public void close() {
+        List<Task> remaining;
+        lock.lock();
+        try {
+            running = false;
+            remaining = new ArrayList<>(waiting);
+            waiting.clear();
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        IllegalStateException closed = new IllegalStateException("The publish queue has been closed");
+        remaining.forEach(task -> task.future.completeExceptionally(closed));
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+        if (ownCompletions != null) ownCompletions.shutdown();
+    }
+
+    private void run() {
+        while (running) {
+            Task task;
+            lock.lock();
+            try {
+                while (running && waiting.isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                task = waiting.pollFirst();
+            } finally {
+                lock.unlock();
+            }
+            if (task != null) send(task);
+        }
+    }
+
+    private void send(Task task) {
+        CompletableFuture<Void> sent;
+        try {
+            sent = task.send.get();
+        } catch (Throwable t) {
+            sent = CompletableFuture.failedFuture(t);
+        }
+
+        sent.whenComplete((ignored, throwable) -> {
+            List<CompletableFuture<Void>> ready;
+            lock.lock();
+            try {
+                release(task);
+                ready = takeCapacityWaiters();
+            } finally {
+                lock.unlock();
+            }
+
+            complete(() -> {
+                if (throwable != null) task.future.completeExceptionally(throwable);
+                else task.future.complete(null);
+            });
+            completeCapacityWaiters(ready);
+        });
+    }
+
+    /**
+     * Completes futures away from the thread Redis acknowledged the message on, which may be a sender, unless the
+     * completion executor is saturated or shut down
+     */
+    private void complete(Runnable completion) {
+        try {
+            completions.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Gives the budget of a message back, must be called while holding the lock
+     */
+    private void release(Task task) {
+        queuedMessages--;
+        queuedBytes -= task.size;
+        notFull.signalAll();
+    }
+
+    /**
+     * Takes the futures returned by {@link #onCapacity()} once the queue has drained enough, must be called while
+     * holding the lock. They are completed with {@link #completeCapacityWaiters(List)} once the lock is released, so
+     * producers resuming never run while it is held
+     *
+     * @return the futures to complete, or null
+     */
+    private List<CompletableFuture<Void>> takeCapacityWaiters() {
+        if (capacityWaiters.isEmpty() || fillLevel() >= LOW_WATERMARK) return null;
+
+        List<CompletableFuture<Void>> ready = new ArrayList<>(capacityWaiters);
+        capacityWaiters.clear();
+        return ready;
+    }
+
+    private void completeCapacityWaiters(List<CompletableFuture<Void>> ready) {
+        if (ready != null) complete(() -> ready.forEach(future -> future.complete(null)));
+    }
+
+    private boolean fits(int size) {
+        if (queuedMessages == 0) return true;
+        return queuedMessages < maxMessages && queuedBytes + size <= maxBytes;
+    }
+
+    private double fillLevel() {
+        return Math.max((double) queuedMessages / maxMessages, (double) queuedBytes / maxBytes);
+    }
+
+    private static final class Task {
+        private final int size;
+        private final Supplier<CompletableFuture<Void>> send;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Task(int size, Supplier<CompletableFuture<Void>> send) {
+            this.size = size;
+            this.send = send;
+        }
+    }
+}
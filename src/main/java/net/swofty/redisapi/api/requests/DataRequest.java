@@ -3,20 +3,45 @@ package net.swofty.redisapi.api.requests;
 import net.swofty.redisapi.api.ChannelRegistry;
 import net.swofty.redisapi.api.RedisAPI;
 import net.swofty.redisapi.util.RedisParsableMessage;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class DataRequest {
-    public static final Map<String, JSONObject> RECEIVED_DATA = new HashMap<>();
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(100);
+
+    /**
+     * Always empty, responses are handed straight to the future of the request they answer and never stored here
+     * @deprecated use the future returned by {@link #await()} instead, this will be removed
+     */
+    @Deprecated
+    public static final Map<String, JSONObject> RECEIVED_DATA = Collections.emptyMap();
+
+    /**
+     * Maximum amount of distinct requests shared or cached at once, further requests are sent on their own
+     */
+    private static final int MAX_SHARED_REQUESTS = 10_000;
+
+    /**
+     * Requests in flight and cached responses, shared by every coalesced request with the same filter, key and data
+     */
+    private static final ResultCache<RequestKey, DataResponse> SHARED = new ResultCache<>(MAX_SHARED_REQUESTS,
+            response -> response.status() == DataResponse.Status.OK);
 
     private final String id;
     private final String filter;
     private final String key;
     private final JSONObject data;
+    private boolean coalesce;
+    private Duration cacheTtl = Duration.ZERO;
 
     /**
      * Create a new data request to get a specific object of data from a specific filter ID.
@@ -30,33 +55,162 @@ public class DataRequest {
         this.data = data;
     }
 
+    /**
+     * Shares this request with every identical request already in flight, meaning one with the same filter ID, key
+     * and data. Only one of them is published and all of them are completed with its response, and with its timeout.
+     * This must only be used for requests without side effects on the responder.
+     * @return This request.
+     */
+    public DataRequest coalesce() {
+        this.coalesce = true;
+        return this;
+    }
+
+    /**
+     * Coalesces this request and keeps a successful response for the given time, identical requests awaited within
+     * it are answered straight away without touching Redis. Cached responses can be dropped with
+     * {@link #invalidateCache(String)} or by the responder through {@link DataRequestResponder#invalidate()}.
+     * @param ttl How long the response is kept.
+     * @return This request.
+     */
+    public DataRequest cacheFor(Duration ttl) {
+        if (ttl.isNegative()) throw new IllegalArgumentException("The cache time cannot be negative");
+        this.coalesce = true;
+        this.cacheTtl = ttl;
+        return this;
+    }
+
+    /**
+     * Publishes this request and waits up to {@link #DEFAULT_TIMEOUT} for a response.
+     * @return A future completed with the response, the data of the response will be null if the request has timed out.
+     */
     public CompletableFuture<DataResponse> await() {
-        return CompletableFuture.supplyAsync(() -> {
-            long start = System.currentTimeMillis();
-            JSONObject request = new JSONObject();
-            request.put("id", id);
-            request.put("key", key);
-            request.put("data", data);
-            request.put("sender", "proxy");
-            request.put("stream", StreamType.REQUEST.name());
-
-            RedisAPI.getInstance().publishMessage(filter, ChannelRegistry.getFromName("internal-data-request"), RedisParsableMessage.from(request).formatForSend());
-
-            int timeout = 0;
-            while (!RECEIVED_DATA.containsKey(id)) {
-                try { Thread.sleep(1); timeout++; } catch (InterruptedException ignored) { }
-                if (timeout >= 100) break;
-            }
+        return await(DEFAULT_TIMEOUT);
+    }
 
-            JSONObject response = RECEIVED_DATA.get(id);
-            RECEIVED_DATA.remove(id);
-            long latency = (System.currentTimeMillis() - start);
-            return new DataResponse(response, latency);
-        });
+    /**
+     * Publishes this request and waits for a response. No thread is blocked while waiting, the returned future is
+     * completed directly by the listener that receives the response. Cancelling the future stops waiting on the
+     * response and any late response will be dropped.
+     * @param timeout How long to wait for a response before giving up.
+     * @return A future completed with the response, the data of the response will be null if the request has timed out.
+     * @throws IllegalStateException if this request is already awaiting a response.
+     */
+    public CompletableFuture<DataResponse> await(Duration timeout) {
+        if (coalesce) {
+            RequestKey requestKey = new RequestKey(filter, key, data == null ? null : canonicalForm(data));
+            // Every caller gets a copy, so cancelling one doesn't cancel the request for the others
+            return SHARED.get(requestKey, cacheTtl, () -> {
+                CompletableFuture<DataResponse> future = DataRequestCorrelator.register(id, timeout);
+                publish();
+                return future;
+            }).copy();
+        }
+
+        CompletableFuture<DataResponse> future = DataRequestCorrelator.register(id, timeout);
+        publish();
+        return future;
+    }
+
+    /**
+     * Publishes this request and collects the responses of every responder it reaches, usually with a filter ID of
+     * "all", until the policy is met.
+     * @param policy When to stop collecting responses.
+     * @return A future completed with every response collected, which may be fewer than required if the deadline elapsed.
+     * @throws IllegalStateException if this request is already awaiting a response.
+     */
+    public CompletableFuture<GatheredResponses> gather(GatherPolicy policy) {
+        return gather(policy, null);
+    }
+
+    /**
+     * Publishes this request and collects the responses of every responder it reaches, usually with a filter ID of
+     * "all", until the policy is met. Every response is also handed to the callback as it arrives, so aggregating can
+     * start before the last responder answers.
+     * @param policy When to stop collecting responses.
+     * @param onResponse Called with every response as it arrives, on the thread that received it.
+     * @return A future completed with every response collected, which may be fewer than required if the deadline elapsed.
+     * @throws IllegalStateException if this request is already awaiting a response.
+     */
+    public CompletableFuture<GatheredResponses> gather(GatherPolicy policy, Consumer<DataResponse> onResponse) {
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, policy, onResponse);
+        publish();
+        return future;
+    }
+
+    /**
+     * Drops the cached responses to every request with the given key on this instance, whatever its filter ID and data.
+     * @param key The data identifier key.
+     */
+    public static void invalidateCache(String key) {
+        SHARED.invalidateIf(requestKey -> Objects.equals(requestKey.key(), key));
+    }
+
+    /**
+     * Drops every cached response on this instance.
+     */
+    public static void invalidateCache() {
+        SHARED.invalidateAll();
+    }
+
+    private void publish() {
+        // Responses are sent back to this instance alone, even when it has no filter ID
+        String sender = RedisAPI.getInstance().getAddress();
+
+        JSONObject request = new JSONObject();
+        request.put("id", id);
+        request.put("key", key);
+        request.put("data", data);
+        request.put("sender", sender);
+        request.put("stream", StreamType.REQUEST.name());
+
+        RedisAPI.getInstance().publishMessage(filter, ChannelRegistry.getFromName("internal-data-request"), RedisParsableMessage.from(request).formatForSend())
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) DataRequestCorrelator.fail(id, throwable);
+                });
     }
 
     public enum StreamType {
         REQUEST,
-        RESPONSE
+        RESPONSE,
+        /**
+         * Sent by a responder whose data changed, every instance drops its cached responses to the key
+         */
+        INVALIDATE
+    }
+
+    /**
+     * @return the JSON text of the data with the keys of every object sorted, so equal data always gives equal text
+     */
+    static String canonicalForm(JSONObject data) {
+        StringBuilder builder = new StringBuilder();
+        appendCanonical(builder, data);
+        return builder.toString();
+    }
+
+    private static void appendCanonical(StringBuilder builder, Object value) {
+        if (value instanceof JSONObject object) {
+            builder.append('{');
+            boolean first = true;
+            for (String key : new TreeSet<>(object.keySet())) {
+                if (!first) builder.append(',');
+                first = false;
+                builder.append(JSONObject.quote(key)).append(':');
+                appendCanonical(builder, JSONObject.wrap(object.opt(key)));
+            }
+            builder.append('}');
+        } else if (value instanceof JSONArray array) {
+            builder.append('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) builder.append(',');
+                appendCanonical(builder, JSONObject.wrap(array.opt(i)));
+            }
+            builder.append(']');
+        } else {
+            builder.append(JSONObject.valueToString(value));
+        }
+    }
+
+    private record RequestKey(String filter, String key, String data) {
     }
 }
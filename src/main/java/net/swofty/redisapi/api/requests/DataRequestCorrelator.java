@@ -0,0 +1,240 @@
+package net.swofty.redisapi.api.requests;
+
+import net.swofty.redisapi.api.RedisAPI;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of every {@link DataRequest} that is still waiting on a response, keyed by the request id.
+ * Responses complete the pending future directly from the thread that received them, and timeouts are driven
+ * by a single shared timer thread, so no thread is ever blocked on an outstanding request.
+ */
+public class DataRequestCorrelator {
+    private static final Map<String, Pending<?>> PENDING = new ConcurrentHashMap<>();
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private DataRequestCorrelator() {
+    }
+
+    /**
+     * Registers a new pending request, this must be done before the request is published so that fast responses
+     * are never missed.
+     *
+     * @param id      The id of the request.
+     * @param timeout How long to wait for a response before completing with a timed out {@link DataResponse}.
+     * @return The future that will be completed once the response arrives, the timeout elapses, or it is cancelled.
+     * @throws IllegalStateException if a request with the same id is already pending.
+     */
+    static CompletableFuture<DataResponse> register(String id, Duration timeout) {
+        return register(id, new PendingRequest(), timeout);
+    }
+
+    /**
+     * Registers a new pending scatter-gather request, collecting responses until its policy is met.
+     *
+     * @param id         The id of the request.
+     * @param policy     When to stop collecting responses.
+     * @param onResponse Called with every response as it arrives, may be null.
+     * @return The future that will be completed with the collected responses.
+     * @throws IllegalStateException if a request with the same id is already pending.
+     */
+    static CompletableFuture<GatheredResponses> registerGather(String id, GatherPolicy policy, Consumer<DataResponse> onResponse) {
+        return register(id, new PendingGather(policy, onResponse), policy.deadline());
+    }
+
+    private static <T> CompletableFuture<T> register(String id, Pending<T> pending, Duration timeout) {
+        pending.id = id;
+        if (PENDING.putIfAbsent(id, pending) != null)
+            throw new IllegalStateException("A data request with the id '" + id + "' is already awaiting a response");
+
+        pending.timeout = TIMER.schedule(() -> {
+            if (PENDING.remove(id, pending)) pending.expire();
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        // Cancellation (or any other completion) by the caller must release the entry and its timer
+        pending.future.whenComplete((response, throwable) -> {
+            PENDING.remove(id, pending);
+            pending.timeout.cancel(false);
+        });
+        return pending.future;
+    }
+
+    /**
+     * Hands a response to the pending request with the given id.
+     *
+     * @param id        The id of the request being responded to.
+     * @param responder The filter id of the responding instance, may be null.
+     * @param data      Decodes the response data, only called if a request is waiting on this response.
+     * @param status    Whether the responder answered or rejected the request.
+     * @return true if a request was waiting on this response, false if the response was late or orphaned and has been dropped.
+     */
+    static boolean complete(String id, String responder, Supplier<JSONObject> data, DataResponse.Status status) {
+        Pending<?> pending = PENDING.get(id);
+        return pending != null && pending.respond(new DataResponse(data.get(), pending.latency(), responder, status));
+    }
+
+    /**
+     * Fails the pending request with the given id, used when the request could not be published.
+     *
+     * @param id        The id of the request.
+     * @param throwable The cause of the failure.
+     */
+    static void fail(String id, Throwable throwable) {
+        Pending<?> pending = PENDING.remove(id);
+        if (pending != null) pending.future.completeExceptionally(throwable);
+    }
+
+    /**
+     * @return The amount of requests currently waiting on a response.
+     */
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "AtlasRedisAPI-RequestTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private abstract static class Pending<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long start = System.nanoTime();
+        String id;
+        volatile ScheduledFuture<?> timeout;
+
+        /**
+         * @return false if the response was not accepted because the request is already complete
+         */
+        abstract boolean respond(DataResponse response);
+
+        /**
+         * Completes the request once its timeout has elapsed, called after it has been removed from the pending map.
+         */
+        abstract void expire();
+
+        long latency() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        void recordRoundTrip() {
+            RedisAPI.getInstance().getMetrics().recordDataRequest(System.nanoTime() - start);
+        }
+    }
+
+    private static class PendingRequest extends Pending<DataResponse> {
+        @Override
+        boolean respond(DataResponse response) {
+            if (!PENDING.remove(id, this)) return false;
+            recordRoundTrip();
+            return future.complete(response);
+        }
+
+        @Override
+        void expire() {
+            RedisAPI.getInstance().getMetrics().recordDataRequestTimeout();
+            future.complete(new DataResponse(null, latency()));
+        }
+    }
+
+    private static class PendingGather extends Pending<GatheredResponses> {
+        private final GatherPolicy policy;
+        private final Consumer<DataResponse> onResponse;
+        private final List<DataResponse> responses = new ArrayList<>();
+
+        /**
+         * Responders counted towards the policy when it counts each responder once, guarded by this
+         */
+        private final Set<String> answered = new HashSet<>();
+
+        /**
+         * Responses counted towards the policy, guarded by this
+         */
+        private int counted;
+
+        /**
+         * Set once the responses were handed to the future, guarded by this. No response is accepted and the
+         * callback is never ran afterwards
+         */
+        private boolean finished;
+
+        private PendingGather(GatherPolicy policy, Consumer<DataResponse> onResponse) {
+            this.policy = policy;
+            this.onResponse = onResponse;
+        }
+
+        @Override
+        boolean respond(DataResponse response) {
+            List<DataResponse> collected;
+            synchronized (this) {
+                if (finished || future.isDone()) return false;
+                responses.add(response);
+                recordRoundTrip();
+                count(response.responder());
+
+                // Ran while holding the lock, so it never overlaps another response or runs after the deadline
+                if (onResponse != null) {
+                    try {
+                        onResponse.accept(response);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+
+                if (policy.required() == 0 || counted < policy.required() || !PENDING.remove(id, this)) return true;
+                collected = finish();
+            }
+            complete(collected);
+            return true;
+        }
+
+        @Override
+        void expire() {
+            List<DataResponse> collected;
+            synchronized (this) {
+                if (finished) return;
+                collected = finish();
+            }
+            complete(collected);
+        }
+
+        private void count(String responder) {
+            if (policy.responders() != null) {
+                if (responder != null && policy.responders().contains(responder) && answered.add(responder)) counted++;
+            } else if (!policy.distinct() || responder == null || answered.add(responder)) {
+                // Responders without a filter id can't be told apart, each of their responses is counted
+                counted++;
+            }
+        }
+
+        private List<DataResponse> finish() {
+            finished = true;
+            return List.copyOf(responses);
+        }
+
+        private void complete(List<DataResponse> collected) {
+            boolean satisfied;
+            synchronized (this) {
+                satisfied = counted >= policy.required();
+            }
+            future.complete(new GatheredResponses(collected, satisfied, latency()));
+        }
+    }
+}
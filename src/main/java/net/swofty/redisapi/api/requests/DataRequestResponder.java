@@ -1,22 +1,233 @@
 package net.swofty.redisapi.api.requests;
 
+import net.swofty.redisapi.api.ChannelPriority;
+import net.swofty.redisapi.api.ChannelRegistry;
+import net.swofty.redisapi.api.RedisAPI;
+import net.swofty.redisapi.events.WeightedDispatchExecutor;
+import net.swofty.redisapi.util.RedisParsableMessage;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 public class DataRequestResponder {
-    public static final Map<String, DataRequestResponder> RESPONDERS = new HashMap<>();
+    public static final Map<String, DataRequestResponder> RESPONDERS = new ConcurrentHashMap<>();
 
-    private final Function<JSONObject, JSONObject> callback;
+    private final Function<JSONObject, CompletableFuture<JSONObject>> callback;
+    private final ResponderOptions options;
+    private final ResultCache<String, Result> cache;
+    private String key;
+
+    private final Queue<QueuedRequest> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAccumulator maxServiceNanos = new LongAccumulator(Math::max, 0);
 
     protected DataRequestResponder(Function<JSONObject, JSONObject> callback) {
+        this(request -> CompletableFuture.completedFuture(callback.apply(request)), ResponderOptions.DEFAULT);
+    }
+
+    protected DataRequestResponder(Function<JSONObject, CompletableFuture<JSONObject>> callback, ResponderOptions options) {
         this.callback = callback;
+        this.options = options;
+        this.cache = options.getCacheTtl().isZero() ? null
+                : new ResultCache<>(options.getCacheMaximumSize(), result -> result.status() == DataResponse.Status.OK);
     }
 
+    /**
+     * Runs the responder on the calling thread and waits for its response, bypassing the concurrency limits.
+     * @param request The request data.
+     * @return The response data.
+     */
     public JSONObject respond(JSONObject request) {
-        return this.callback.apply(request);
+        return this.callback.apply(request).join();
+    }
+
+    /**
+     * Queues a request onto the executor of this responder, or rejects it straight away if too many requests are
+     * already in flight.
+     * @param request The request data.
+     * @param reply Called once with the status and data of the response, from whichever thread completed it.
+     */
+    void handle(JSONObject request, BiConsumer<DataResponse.Status, JSONObject> reply) {
+        if (cache == null) {
+            admit(request, reply);
+            return;
+        }
+
+        cache.get(DataRequest.canonicalForm(request), options.getCacheTtl(), () -> {
+            CompletableFuture<Result> result = new CompletableFuture<>();
+            admit(request, (status, response) -> result.complete(new Result(status, response)));
+            return result;
+        }).thenAccept(result -> reply.accept(result.status(), result.data()));
+    }
+
+    private void admit(JSONObject request, BiConsumer<DataResponse.Status, JSONObject> reply) {
+        if (inFlight.incrementAndGet() > options.getMaxConcurrency() + options.getMaxQueued()) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            reply.accept(DataResponse.Status.BUSY, null);
+            return;
+        }
+
+        queued.add(new QueuedRequest(request, reply));
+        drain();
+    }
+
+    /**
+     * Starts queued requests while there are free slots
+     */
+    private void drain() {
+        while (!queued.isEmpty()) {
+            int current = running.get();
+            if (current >= options.getMaxConcurrency()) return;
+            if (!running.compareAndSet(current, current + 1)) continue;
+
+            QueuedRequest task = queued.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                continue;
+            }
+
+            try {
+                resolveExecutor().execute(() -> run(task.request(), task.reply()));
+            } catch (RejectedExecutionException e) {
+                // The executor is shut down or saturated, nothing queued behind this request would run either
+                running.decrementAndGet();
+                reject(task);
+                for (QueuedRequest next; (next = queued.poll()) != null; ) reject(next);
+                return;
+            }
+        }
+    }
+
+    private void reject(QueuedRequest task) {
+        inFlight.decrementAndGet();
+        rejected.increment();
+        task.reply().accept(DataResponse.Status.BUSY, null);
+    }
+
+    private void run(JSONObject request, BiConsumer<DataResponse.Status, JSONObject> reply) {
+        long start = System.nanoTime();
+        CompletableFuture<JSONObject> future;
+        try {
+            future = callback.apply(request);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((response, throwable) -> {
+            long elapsed = System.nanoTime() - start;
+            serviceNanos.add(elapsed);
+            maxServiceNanos.accumulate(elapsed);
+            completed.increment();
+
+            running.decrementAndGet();
+            inFlight.decrementAndGet();
+            drain();
+
+            if (throwable != null) {
+                failed.increment();
+                reply.accept(DataResponse.Status.FAILED, null);
+            } else {
+                reply.accept(DataResponse.Status.OK, response);
+            }
+        });
+    }
+
+    private Executor resolveExecutor() {
+        Executor executor = options.getExecutor();
+        if (executor != null) return executor;
+
+        // Responders answer data requests, which are control traffic
+        Executor shared = RedisAPI.getInstance().getDispatchExecutor();
+        return shared instanceof WeightedDispatchExecutor weighted ? weighted.forPriority(ChannelPriority.HIGH) : shared;
+    }
+
+    /**
+     * Drops every cached response of this responder, and tells every instance to drop the responses to this key it
+     * cached with {@link DataRequest#cacheFor(Duration)}. This should be called whenever the data behind the key changes.
+     */
+    public void invalidate() {
+        clearCache();
+        if (key == null) return;
+
+        JSONObject invalidation = new JSONObject();
+        invalidation.put("id", UUID.randomUUID().toString());
+        invalidation.put("key", key);
+        invalidation.put("sender", "internal");
+        invalidation.put("stream", DataRequest.StreamType.INVALIDATE.name());
+
+        RedisAPI.getInstance().publishMessage("all", ChannelRegistry.getFromName("internal-data-request"),
+                RedisParsableMessage.from(invalidation).formatForSend());
+    }
+
+    /**
+     * Drops the cached responses of this responder only, called when another instance invalidated the key.
+     */
+    void clearCache() {
+        if (cache != null) cache.invalidateAll();
+    }
+
+    /**
+     * @return The amount of requests currently being handled or waiting for a free slot.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The amount of requests handled so far, including those that failed.
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return The amount of requests rejected with a busy response so far.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The amount of requests whose handler threw or completed exceptionally so far, each answered with a
+     * failed response.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The average time between a request starting to run and its response being ready.
+     */
+    public Duration getAverageServiceTime() {
+        long count = completed.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(serviceNanos.sum() / count);
+    }
+
+    /**
+     * @return The longest time between a request starting to run and its response being ready.
+     */
+    public Duration getMaxServiceTime() {
+        return Duration.ofNanos(maxServiceNanos.get());
     }
 
     /**
@@ -27,6 +238,22 @@ public class DataRequestResponder {
      */
     public static DataRequestResponder create(String key, Function<JSONObject, JSONObject> callback) {
         DataRequestResponder responder = new DataRequestResponder(callback);
+        responder.key = key;
+        RESPONDERS.put(key, responder);
+        return responder;
+    }
+
+    /**
+     * Creates a new asynchronous Data Request Responder, which is started on the executor of its options and may
+     * complete its future from any thread. Must be registered before {@link net.swofty.redisapi.api.RedisAPI#startListeners()} in order to work properly.
+     * @param key The key to respond to.
+     * @param callback Callback, has a JSONObject parameter request, and returns a future completed with the JSONObject response.
+     * @param options The executor and concurrency limits of the responder.
+     * @return The created DataRequestResponder, which exposes its service times.
+     */
+    public static DataRequestResponder createAsync(String key, Function<JSONObject, CompletableFuture<JSONObject>> callback, ResponderOptions options) {
+        DataRequestResponder responder = new DataRequestResponder(callback, options);
+        responder.key = key;
         RESPONDERS.put(key, responder);
         return responder;
     }
@@ -39,4 +266,10 @@ public class DataRequestResponder {
     public static DataRequestResponder get(String key) {
         return RESPONDERS.get(key);
     }
+
+    private record QueuedRequest(JSONObject request, BiConsumer<DataResponse.Status, JSONObject> reply) {
+    }
+
+    private record Result(DataResponse.Status status, JSONObject data) {
+    }
 }
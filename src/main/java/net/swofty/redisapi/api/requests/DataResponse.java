@@ -4,8 +4,32 @@ import org.json.JSONObject;
 
 /**
  * The response to a DataRequest.
- * @param data The data object, will be null if the request has timed out.
+ * @param data The data object, will be null if the request has timed out or was not answered successfully.
  * @param latency The latency of the request, normal range is between 1-10ms, unless the server is under heavy load or the Redis server is running on a different machine.
+ * @param responder The filter ID of the instance that responded, or its process id if it has none. Null if the request has timed out or the responder did not send it.
+ * @param status Whether the request was answered, rejected or timed out.
  */
-public record DataResponse(JSONObject data, long latency) {
+public record DataResponse(JSONObject data, long latency, String responder, Status status) {
+    public DataResponse(JSONObject data, long latency) {
+        this(data, latency, null, data == null ? Status.TIMED_OUT : Status.OK);
+    }
+
+    public enum Status {
+        /**
+         * The responder answered the request
+         */
+        OK,
+        /**
+         * The responder was already handling as many requests as it allows and rejected this one straight away
+         */
+        BUSY,
+        /**
+         * The responder threw or its future completed exceptionally
+         */
+        FAILED,
+        /**
+         * No response arrived in time
+         */
+        TIMED_OUT
+    }
 }
@@ -2,37 +2,55 @@ package net.swofty.redisapi.api.requests;
 
 import net.swofty.redisapi.api.ChannelRegistry;
 import net.swofty.redisapi.api.RedisAPI;
+import net.swofty.redisapi.events.HandlerScope;
 import net.swofty.redisapi.events.RedisMessagingReceiveInterface;
 import net.swofty.redisapi.util.RedisParsableMessage;
 import org.json.JSONObject;
 
+@HandlerScope(HandlerScope.Scope.SINGLETON)
 public class DataStreamListener implements RedisMessagingReceiveInterface {
     @Override
     public void onMessage(String channel, String message) {
+        // Only the routing fields are decoded here, the data is left as text until a responder or request takes it
         RedisParsableMessage msg = RedisParsableMessage.parse(message);
         DataRequest.StreamType type = DataRequest.StreamType.valueOf(msg.get("stream", "NONE"));
         String key = msg.get("key", "NONE");
         String id = msg.get("id", "NONE");
         String sender = msg.get("sender", "NONE");
-        JSONObject data = msg.getJson().getJSONObject("data");
 
         switch (type) {
             case REQUEST -> {
                 DataRequestResponder responder = DataRequestResponder.get(key);
                 if (responder == null) return;
 
-                JSONObject response = responder.respond(data);
-                JSONObject responseJson = new JSONObject();
-                responseJson.put("id", id);
-                responseJson.put("sender", "internal");
-                responseJson.put("stream", DataRequest.StreamType.RESPONSE.name());
-                responseJson.put("key", key);
-                responseJson.put("data", response);
+                // The responder runs on its own executor, this thread goes straight back to reading requests
+                responder.handle(getData(msg), (status, response) -> {
+                    JSONObject responseJson = new JSONObject();
+                    responseJson.put("id", id);
+                    responseJson.put("sender", "internal");
+                    responseJson.put("responder", RedisAPI.getInstance().getAddress());
+                    responseJson.put("stream", DataRequest.StreamType.RESPONSE.name());
+                    responseJson.put("status", status.name());
+                    responseJson.put("key", key);
+                    responseJson.put("data", response);
 
-                RedisAPI.getInstance().publishMessage(sender, ChannelRegistry.getFromName("internal-data-request"),
-                        RedisParsableMessage.from(responseJson).formatForSend());
+                    RedisAPI.getInstance().publishMessage(sender, ChannelRegistry.getFromName("internal-data-request"),
+                            RedisParsableMessage.from(responseJson).formatForSend());
+                });
             }
-            case RESPONSE -> DataRequest.RECEIVED_DATA.put(id, data);
+            case INVALIDATE -> {
+                DataRequest.invalidateCache(key);
+                DataRequestResponder responder = DataRequestResponder.get(key);
+                if (responder != null) responder.clearCache();
+            }
+            // Responses to other instances, or that arrived too late, are dropped without decoding their data
+            case RESPONSE -> DataRequestCorrelator.complete(id, msg.get("responder", null), () -> getData(msg),
+                    DataResponse.Status.valueOf(msg.get("status", DataResponse.Status.OK.name())));
         }
     }
+
+    private static JSONObject getData(RedisParsableMessage msg) {
+        RedisParsableMessage data = msg.getMessage("data");
+        return data == null ? null : data.getJson();
+    }
 }
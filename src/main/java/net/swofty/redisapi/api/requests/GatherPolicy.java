@@ -0,0 +1,80 @@
+package net.swofty.redisapi.api.requests;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * When a scatter-gather {@link DataRequest} stops collecting responses. Whatever was collected is returned once the
+ * required responses have arrived or the deadline elapses, whichever happens first.
+ * @param required The amount of responses to wait for, 0 to collect every response until the deadline.
+ * @param deadline How long to collect responses for at most.
+ * @param distinct True to count the responses of each responder once, by its filter id, instead of every response.
+ * @param responders The filter ids of the responders to wait for, in which case only their responses count, or null.
+ */
+public record GatherPolicy(int required, Duration deadline, boolean distinct, Set<String> responders) {
+    public GatherPolicy {
+        if (required < 0) throw new IllegalArgumentException("The required amount of responses cannot be negative");
+        if (deadline == null || deadline.isNegative()) throw new IllegalArgumentException("The deadline must be a positive duration");
+        if (responders != null) responders = Set.copyOf(responders);
+    }
+
+    public GatherPolicy(int required, Duration deadline) {
+        this(required, deadline, false, null);
+    }
+
+    /**
+     * Waits for a response from every expected responder, each responder is counted once however often it answers.
+     * @param expected The amount of responders the request is sent to.
+     * @param deadline How long to wait for them at most.
+     * @return The policy.
+     */
+    public static GatherPolicy all(int expected, Duration deadline) {
+        if (expected < 1) throw new IllegalArgumentException("At least one responder must be expected");
+        return new GatherPolicy(expected, deadline, true, null);
+    }
+
+    /**
+     * Waits for a response from every one of the given responders, responses of any other responder are still
+     * collected but don't count.
+     * @param responders The filter ids of the responders the request is sent to.
+     * @param deadline How long to wait for them at most.
+     * @return The policy.
+     */
+    public static GatherPolicy all(Collection<String> responders, Duration deadline) {
+        if (responders.isEmpty()) throw new IllegalArgumentException("At least one responder must be expected");
+        Set<String> expected = Set.copyOf(responders);
+        return new GatherPolicy(expected.size(), deadline, true, expected);
+    }
+
+    /**
+     * Waits for a response from a majority of the expected responders, each responder is counted once.
+     * @param expected The amount of responders the request is sent to.
+     * @param deadline How long to wait for them at most.
+     * @return The policy.
+     */
+    public static GatherPolicy quorum(int expected, Duration deadline) {
+        if (expected < 1) throw new IllegalArgumentException("At least one responder must be expected");
+        return new GatherPolicy(expected / 2 + 1, deadline, true, null);
+    }
+
+    /**
+     * Waits for the first responses to arrive, regardless of which responders they are from.
+     * @param count The amount of responses to wait for.
+     * @param deadline How long to wait for them at most.
+     * @return The policy.
+     */
+    public static GatherPolicy firstN(int count, Duration deadline) {
+        if (count < 1) throw new IllegalArgumentException("At least one response must be required");
+        return new GatherPolicy(count, deadline);
+    }
+
+    /**
+     * Collects every response that arrives until the deadline.
+     * @param deadline How long to collect responses for.
+     * @return The policy.
+     */
+    public static GatherPolicy deadline(Duration deadline) {
+        return new GatherPolicy(0, deadline);
+    }
+}
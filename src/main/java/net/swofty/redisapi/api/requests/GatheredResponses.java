@@ -0,0 +1,12 @@
+package net.swofty.redisapi.api.requests;
+
+import java.util.List;
+
+/**
+ * The responses collected by a scatter-gather {@link DataRequest}.
+ * @param responses Every response that arrived in the order they arrived, including busy and failed ones.
+ * @param satisfied True if the required amount of responses arrived before the deadline, always true for policies only bound by a deadline.
+ * @param latency How long the responses were collected for.
+ */
+public record GatheredResponses(List<DataResponse> responses, boolean satisfied, long latency) {
+}
@@ -0,0 +1,51 @@
+package net.swofty.redisapi.api.requests;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Settings of a {@link DataRequestResponder}, build one with {@link #builder()} or use {@link #DEFAULT}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ResponderOptions {
+    /**
+     * Options used by every responder that is created without any options of its own
+     */
+    public static final ResponderOptions DEFAULT = ResponderOptions.builder().build();
+
+    /**
+     * Executor the responder is ran on, this can be any executor including {@code Executors.newVirtualThreadPerTaskExecutor()}.
+     * When null, {@link net.swofty.redisapi.api.RedisAPI#getDispatchExecutor()} is used, with high priority.
+     */
+    private final Executor executor;
+
+    /**
+     * Maximum amount of requests handled at the same time, a request counts until the future of the responder completes
+     */
+    @Builder.Default
+    private final int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum amount of requests waiting for a free slot, further requests are rejected with a busy response straight away
+     */
+    @Builder.Default
+    private final int maxQueued = 1_024;
+
+    /**
+     * How long a successful response is kept and reused for requests with the same data, zero disables caching.
+     * While caching is enabled, identical requests arriving while the first is still being handled share its response.
+     * Cached responses are dropped with {@link DataRequestResponder#invalidate()}.
+     */
+    @Builder.Default
+    private final Duration cacheTtl = Duration.ZERO;
+
+    /**
+     * Maximum amount of distinct requests the responses of which are cached at once
+     */
+    @Builder.Default
+    private final int cacheMaximumSize = 10_000;
+}
@@ -0,0 +1,110 @@
+package net.swofty.redisapi.api.requests;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Shares the future of a computation between every caller asking for the same key while it is in flight, and
+ * optionally keeps its result for a while after it completed. Only results accepted by the cacheable predicate
+ * are kept, anything else is dropped as soon as it completes so the next caller computes it again.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ */
+final class ResultCache<K, V> {
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final Predicate<V> cacheable;
+
+    /**
+     * @param maximumSize the maximum amount of keys kept, further computations run without being shared once reached
+     * @param cacheable   whether a result may be kept after it completed
+     */
+    ResultCache(int maximumSize, Predicate<V> cacheable) {
+        this.maximumSize = maximumSize;
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * @param key    the key of the computation
+     * @param ttl    how long the result is kept once completed, zero to only share it while in flight
+     * @param loader starts the computation, only called if no usable result is present
+     * @return the shared future of the computation, callers must not complete or cancel it
+     */
+    CompletableFuture<V> get(K key, Duration ttl, Supplier<CompletableFuture<V>> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.isUsable()) return entry.future;
+            entries.remove(key, entry);
+        }
+
+        if (entries.size() >= maximumSize) {
+            entries.values().removeIf(existing -> !existing.isUsable());
+            if (entries.size() >= maximumSize) return loader.get();
+        }
+
+        Entry<V> created = new Entry<>();
+        Entry<V> existing = entries.putIfAbsent(key, created);
+        // Another caller started the same computation first, or left an expired entry behind which computing without sharing can ignore
+        if (existing != null) return existing.isUsable() ? existing.future : loader.get();
+
+        try {
+            loader.get().whenComplete((result, throwable) -> settle(key, created, ttl, result, throwable));
+        } catch (RuntimeException e) {
+            settle(key, created, ttl, null, e);
+        }
+        return created.future;
+    }
+
+    /**
+     * Decides whether the entry is kept before completing it, so no caller can see it completed without its expiry
+     */
+    private void settle(K key, Entry<V> entry, Duration ttl, V result, Throwable throwable) {
+        if (throwable == null && !ttl.isZero() && cacheable.test(result)) {
+            entry.expiresAt = System.nanoTime() + ttl.toNanos();
+            entry.kept = true;
+        } else {
+            entries.remove(key, entry);
+        }
+
+        if (throwable != null) entry.future.completeExceptionally(throwable);
+        else entry.future.complete(result);
+    }
+
+    /**
+     * Drops the entries of every key matching the filter. Callers already sharing a computation in flight still get
+     * its result, but it is not kept and the next caller computes it again.
+     */
+    void invalidateIf(Predicate<K> filter) {
+        entries.keySet().removeIf(filter);
+    }
+
+    void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        /**
+         * Set along with the expiry before the future is completed, if the result is kept
+         */
+        private volatile boolean kept;
+
+        /**
+         * @return true if the computation is in flight or its result was kept and has not expired yet
+         */
+        private boolean isUsable() {
+            return !future.isDone() || (kept && expiresAt - System.nanoTime() > 0);
+        }
+    }
+}
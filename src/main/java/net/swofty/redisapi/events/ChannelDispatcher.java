@@ -0,0 +1,105 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.api.ChannelOptions;
+import net.swofty.redisapi.api.ChannelPriority;
+import net.swofty.redisapi.api.OverflowPolicy;
+import net.swofty.redisapi.api.RedisAPI;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Hands the messages of a single channel off the subscriber thread. Messages are spread over ordered lanes by their
+ * ordering key (or all go into one lane when the channel has none), keeping FIFO order per key while different
+ * channels and keys are handled in parallel.
+ */
+public class ChannelDispatcher {
+    /**
+     * Bulk lanes give their thread back sooner, so a thread frees up for higher priority lanes more often
+     */
+    private static final int BULK_TASKS_PER_RUN = 8;
+
+    private final ChannelOptions options;
+    private final Function<String, ?> orderingKey;
+    private final OrderedLane[] lanes;
+
+    public ChannelDispatcher(ChannelOptions options) {
+        this.options = options;
+        this.orderingKey = options.getOrderingKey();
+
+        int laneCount = orderingKey == null ? 1 : Math.max(1, options.getOrderingLanes());
+        this.lanes = new OrderedLane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new OrderedLane(options.getQueueCapacity(), options.getPriority() == ChannelPriority.BULK ? BULK_TASKS_PER_RUN : OrderedLane.MAX_TASKS_PER_RUN);
+        }
+    }
+
+    /**
+     * Queues the handling of a message onto the lane it belongs to.
+     *
+     * @param message the message, used to determine the ordering key, null for binary payloads which are always
+     *                handled in order
+     * @param handler the task handling the message
+     * @return false if the message was discarded because its lane was full
+     */
+    public boolean dispatch(String message, Runnable handler) throws InterruptedException {
+        return dispatch(message, handler, options.getOverflowPolicy());
+    }
+
+    /**
+     * Queues the handling of a message onto the lane it belongs to, with an overflow policy other than the one of
+     * the channel.
+     *
+     * @param message the message, used to determine the ordering key, null for binary payloads
+     * @param handler the task handling the message
+     * @param policy  what to do when the lane is full
+     * @return false if the message was discarded because its lane was full
+     */
+    public boolean dispatch(String message, Runnable handler, OverflowPolicy policy) throws InterruptedException {
+        OrderedLane lane = lanes.length == 1 || message == null ? lanes[0] : lanes[Math.floorMod(spread(orderingKey.apply(message)), lanes.length)];
+        return lane.submit(handler, policy, resolveExecutor());
+    }
+
+    /**
+     * @return true if messages are spread over several lanes by their ordering key, which then has to be computed
+     * from the text of every message when it is dispatched
+     */
+    public boolean isKeyed() {
+        return lanes.length > 1;
+    }
+
+    /**
+     * @return the amount of messages currently waiting to be handled across every lane of this channel
+     */
+    public int getQueuedCount() {
+        int queued = 0;
+        for (OrderedLane lane : lanes) {
+            queued += lane.size();
+        }
+        return queued;
+    }
+
+    /**
+     * @return the amount of messages discarded by the overflow policy of this channel since it was registered
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (OrderedLane lane : lanes) {
+            dropped += lane.dropped();
+        }
+        return dropped;
+    }
+
+    private Executor resolveExecutor() {
+        Executor executor = options.getExecutor();
+        if (executor != null) return executor;
+
+        Executor shared = RedisAPI.getInstance().getDispatchExecutor();
+        return shared instanceof WeightedDispatchExecutor weighted ? weighted.forPriority(options.getPriority()) : shared;
+    }
+
+    private static int spread(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
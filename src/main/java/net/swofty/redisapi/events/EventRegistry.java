@@ -1,22 +1,160 @@
 package net.swofty.redisapi.events;
 
+import net.swofty.redisapi.api.ChannelFunctionType;
 import net.swofty.redisapi.api.ChannelRegistry;
+import net.swofty.redisapi.api.OverflowPolicy;
 import net.swofty.redisapi.api.RedisAPI;
 import net.swofty.redisapi.api.RedisChannel;
+import net.swofty.redisapi.api.codec.CodecRegistry;
+import net.swofty.redisapi.api.codec.JsonMessageCodec;
+import net.swofty.redisapi.api.codec.MessageCodec;
+import net.swofty.redisapi.api.metrics.MetricsRegistry;
 import lombok.SneakyThrows;
 import net.swofty.redisapi.exceptions.ChannelDefinitionError;
 import net.swofty.redisapi.exceptions.InvalidMessageException;
+import net.swofty.redisapi.util.MessageEnvelope;
+import net.swofty.redisapi.util.MessageOrigin;
+import net.swofty.redisapi.util.PayloadCompression;
+import net.swofty.redisapi.util.RedisParsableMessage;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.JedisPubSub;
 
-import java.util.Objects;
-import java.util.Optional;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class EventRegistry {
 
       public static JedisPubSub pubSub = null;
+      public static BinaryJedisPubSub binaryPubSub = null;
 
-      @SneakyThrows
+      /**
+       * Routes a message received by the subscriber to the handler of its channel. The handler itself is not ran
+       * here, it is queued onto the dispatcher of the channel so the subscriber thread can keep reading.
+       *
+       * @param channel the channel the message was received on, this may be a filter routed sub-channel in which case
+       *                handlers are still given the name of the channel itself
+       * @param message the raw message, including the filter id
+       */
       public static void handleAll(String channel, String message) {
+            if (message != null && (message = MessageOrigin.strip(message)) == null) return;
+
+            RedisChannel channelBeingCalled = ChannelRegistry.getRoute(channel);
+            deliver(channelBeingCalled, channelBeingCalled == null ? channel : channelBeingCalled.channelName, message);
+      }
+
+      /**
+       * Routes a message received through a pattern subscription to the handler of the pattern channel it matched.
+       *
+       * @param pattern the pattern Redis reported the message matched
+       * @param channel the channel the message was published on, handlers are given this channel
+       * @param message the raw message, including the filter id
+       */
+      public static void handlePattern(String pattern, String channel, String message) {
+            RedisChannel channelBeingCalled = ChannelRegistry.getPatternRoute(pattern);
+            if (channelBeingCalled == null || (message != null && (message = MessageOrigin.strip(message)) == null)) return;
+
+            String logicalChannel = toLogicalChannel(channelBeingCalled, pattern, channel);
+            if (logicalChannel != null) deliver(channelBeingCalled, logicalChannel, message);
+      }
+
+      /**
+       * Routes a message received by the binary subscriber to the handler of its channel. Both framed messages and
+       * legacy {@code filterId;message} messages are accepted and the filter id is checked in place. Text handlers
+       * and ordering keys receive {@code filterId;message} like they do in text mode, binary and structured handlers
+       * only receive the payload.
+       *
+       * @param channel the UTF-8 encoded channel the message was received on
+       * @param message the raw message, including the envelope
+       */
+      public static void handleBinary(byte[] channel, byte[] message) {
+            RedisChannel channelBeingCalled = ChannelRegistry.getRoute(channel);
+            if (channelBeingCalled == null || isEcho(message)) return;
+
+            deliverBinary(channelBeingCalled, channelBeingCalled.channelName, message);
+      }
+
+      /**
+       * Routes a message received by the binary subscriber through a pattern subscription to the handler of the
+       * pattern channel it matched.
+       *
+       * @param pattern the UTF-8 encoded pattern Redis reported the message matched
+       * @param channel the UTF-8 encoded channel the message was published on
+       * @param message the raw message, including the envelope
+       */
+      public static void handleBinaryPattern(byte[] pattern, byte[] channel, byte[] message) {
+            RedisChannel channelBeingCalled = ChannelRegistry.getPatternRoute(pattern);
+            if (channelBeingCalled == null || isEcho(message)) return;
+
+            String logicalChannel = toLogicalChannel(channelBeingCalled, new String(pattern, StandardCharsets.UTF_8), new String(channel, StandardCharsets.UTF_8));
+            if (logicalChannel != null) deliverBinary(channelBeingCalled, logicalChannel, message);
+      }
+
+      /**
+       * Hands a text message published by this instance straight to the handlers of its channel and of every
+       * pattern channel matching it, without it going through Redis.
+       *
+       * @param channel the name of the channel the message was published on
+       * @param message the message, including the filter id but without an origin tag
+       */
+      public static void handleLoopback(String channel, String message) {
+            RedisChannel channelBeingCalled = ChannelRegistry.getRoute(channel);
+            if (channelBeingCalled != null) deliver(channelBeingCalled, channel, message);
+            for (RedisChannel patternChannel : ChannelRegistry.getMatchingPatternChannels(channel)) {
+                  deliver(patternChannel, channel, message);
+            }
+      }
+
+      /**
+       * Hands a framed message published by this instance straight to the handlers of its channel and of every
+       * pattern channel matching it, without it going through Redis.
+       *
+       * @param channel the name of the channel the message was published on
+       * @param message the framed message
+       */
+      public static void handleLoopback(String channel, byte[] message) {
+            RedisChannel channelBeingCalled = ChannelRegistry.getRoute(channel);
+            if (channelBeingCalled != null) deliverBinary(channelBeingCalled, channel, message);
+            for (RedisChannel patternChannel : ChannelRegistry.getMatchingPatternChannels(channel)) {
+                  deliverBinary(patternChannel, channel, message);
+            }
+      }
+
+      /**
+       * Routes an entry read from the stream of a durable channel to its handler, the entry is acknowledged once the
+       * handler has finished without throwing. Entries are never discarded to make room in a full lane, unless the
+       * channel blocks they are refused instead so the consumer can hand them over again later.
+       *
+       * @param channelBeingCalled the durable channel
+       * @param message            the message, in the format handlers receive through pub/sub
+       * @param acknowledge        ran once the handler has finished without throwing
+       * @param finished           ran once the handler has finished, whether it threw or not
+       * @return false if the message was refused because its lane was full
+       */
+      public static boolean handleDurable(RedisChannel channelBeingCalled, String message, Runnable acknowledge, Runnable finished) throws InterruptedException {
+            String channel = channelBeingCalled.channelName;
+            Runnable handler = channelBeingCalled.functionType == ChannelFunctionType.STRUCTURED
+                    ? () -> invokeStructured(channelBeingCalled, channel, RedisParsableMessage.parse(message))
+                    : () -> invoke(channelBeingCalled, channel, message);
+            OverflowPolicy policy = channelBeingCalled.options.getOverflowPolicy() == OverflowPolicy.BLOCK ? OverflowPolicy.BLOCK : OverflowPolicy.DROP_NEWEST;
+
+            boolean dispatched = dispatch(channelBeingCalled, message, () -> {
+                  try {
+                        handler.run();
+                        acknowledge.run();
+                  } finally {
+                        finished.run();
+                  }
+            }, policy);
+            if (dispatched) {
+                  RedisAPI.getInstance().getMetrics().recordReceived(channel, message.length());
+                  channelBeingCalled.timestamp = System.currentTimeMillis();
+            }
+            return dispatched;
+      }
+
+      @SneakyThrows
+      private static void deliver(RedisChannel channelBeingCalled, String channel, String message) {
             String filterID;
             if (message != null && message.contains(";")) {
                   filterID = message.split(";", 2)[0];
@@ -24,24 +162,248 @@ public class EventRegistry {
                   throw new InvalidMessageException("Received message is not properly formatted with a filter ID: " + message);
             }
 
-            if (filterID.equals("all") || filterID.equals(RedisAPI.getInstance().getFilterId())) {
-                  Optional<RedisChannel> optionalChannelBeingCalled = ChannelRegistry.registeredChannels.stream().filter(channel2 -> Objects.equals(channel2.channelName, channel)).findAny();
-                  if (optionalChannelBeingCalled.isPresent()) {
-                        RedisChannel channelBeingCalled = optionalChannelBeingCalled.get();
+            if (channelBeingCalled == null) return;
+
+            MetricsRegistry metrics = RedisAPI.getInstance().getMetrics();
+            metrics.recordReceived(channelBeingCalled.channelName, message.length());
+            if (filterID.equals("all") || filterID.equals(RedisAPI.getInstance().getAddress())) {
+                  channelBeingCalled.timestamp = System.currentTimeMillis();
+                  if (channelBeingCalled.functionType == ChannelFunctionType.STRUCTURED) {
+                        dispatch(channelBeingCalled, message, () -> invokeStructured(channelBeingCalled, channel, RedisParsableMessage.parse(message)));
+                        return;
+                  }
+                  dispatch(channelBeingCalled, message, () -> invoke(channelBeingCalled, channel, message));
+            } else {
+                  metrics.recordFilteredOut(channelBeingCalled.channelName);
+            }
+      }
+
+      @SneakyThrows
+      private static void deliverBinary(RedisChannel channelBeingCalled, String channel, byte[] message) {
+            RedisAPI api = RedisAPI.getInstance();
+            byte[] filterId = api.getAddressBytes();
+            api.getMetrics().recordReceived(channelBeingCalled.channelName, message.length);
+            int payloadOffset;
+            int codecId = 0;
+            boolean compressed = false;
+            boolean batched = false;
+            boolean broadcast;
+            if (MessageEnvelope.isFramed(message)) {
+                  if (!MessageEnvelope.isAddressedTo(message, filterId)) {
+                        api.getMetrics().recordFilteredOut(channelBeingCalled.channelName);
+                        return;
+                  }
+                  broadcast = MessageEnvelope.isBroadcast(message);
+                  payloadOffset = MessageEnvelope.payloadOffset(message);
+                  codecId = MessageEnvelope.codec(message);
+                  compressed = (MessageEnvelope.flags(message) & MessageEnvelope.FLAG_COMPRESSED) != 0;
+                  batched = (MessageEnvelope.flags(message) & MessageEnvelope.FLAG_BATCH) != 0;
+            } else {
+                  int separator = indexOf(message, (byte) ';');
+                  if (separator < 0)
+                        throw new InvalidMessageException("Received message is not properly formatted with a filter ID: " + new String(message, StandardCharsets.UTF_8));
+                  if (!isLegacyAddressedTo(message, separator, filterId)) {
+                        api.getMetrics().recordFilteredOut(channelBeingCalled.channelName);
+                        return;
+                  }
+                  broadcast = isLegacyBroadcast(message, separator);
+                  payloadOffset = separator + 1;
+            }
+
+            int payloadLength = message.length - payloadOffset;
+            channelBeingCalled.timestamp = System.currentTimeMillis();
+            if (batched) {
+                  deliverBatch(channelBeingCalled, channel, message, payloadOffset, payloadLength, codecId, compressed, broadcast);
+                  return;
+            }
+
+            // Decoding is left to the dispatch task unless an ordering key has to be computed from the text right away
+            if (channelBeingCalled.functionType == ChannelFunctionType.BINARY || !channelBeingCalled.dispatcher.isKeyed()) {
+                  int offset = payloadOffset, codec = codecId;
+                  boolean deflated = compressed;
+                  dispatch(channelBeingCalled, null, () -> handlePayload(channelBeingCalled, channel, message, offset, payloadLength, codec, deflated, broadcast));
+                  return;
+            }
+
+            String text = withFilterId(broadcast, toText(message, payloadOffset, payloadLength, codecId, compressed));
+            if (channelBeingCalled.functionType == ChannelFunctionType.STRUCTURED) {
+                  dispatch(channelBeingCalled, text, () -> invokeStructured(channelBeingCalled, channel, RedisParsableMessage.parse(text)));
+                  return;
+            }
+            dispatch(channelBeingCalled, text, () -> invoke(channelBeingCalled, channel, text));
+      }
+
+      /**
+       * Hands the messages of a batch to the handlers of its channel. Unless the channel spreads its messages over
+       * several lanes by their ordering key, the whole batch is handled by a single dispatch task which also unpacks it.
+       */
+      private static void deliverBatch(RedisChannel channelBeingCalled, String channel, byte[] message, int offset, int length, int codecId, boolean compressed, boolean broadcast) throws InterruptedException {
+            RedisBatchReceiveInterface batchHandler = channelBeingCalled.options.getBatchHandler();
+            if (batchHandler != null) {
+                  dispatch(channelBeingCalled, null, () -> batchHandler.onBatch(channel, MessageBatch.unpack(message, offset, length, codecId, compressed)));
+                  return;
+            }
+            if (channelBeingCalled.functionType == ChannelFunctionType.BINARY || !channelBeingCalled.dispatcher.isKeyed()) {
+                  // Not timed as a whole, every message of the batch is timed as a handler run of its own
+                  channelBeingCalled.dispatcher.dispatch(null, () -> handleBatch(channelBeingCalled, channel,
+                          MessageBatch.unpack(message, offset, length, codecId, compressed), broadcast), channelBeingCalled.options.getOverflowPolicy());
+                  return;
+            }
 
+            MessageBatch batch = MessageBatch.unpack(message, offset, length, codecId, compressed);
+            for (int i = 0; i < batch.size(); i++) {
+                  String text = withFilterId(broadcast, batch.getText(i));
+                  if (channelBeingCalled.functionType == ChannelFunctionType.STRUCTURED) {
+                        dispatch(channelBeingCalled, text, () -> invokeStructured(channelBeingCalled, channel, RedisParsableMessage.parse(text)));
+                  } else {
+                        dispatch(channelBeingCalled, text, () -> invoke(channelBeingCalled, channel, text));
+                  }
+            }
+      }
+
+      /**
+       * Runs the handler of every message of a batch, called from the dispatch task. Every message is timed and its
+       * failure counted like a message dispatched on its own, and a handler throwing doesn't stop the rest of the batch
+       * from being handled.
+       */
+      private static void handleBatch(RedisChannel channelBeingCalled, String channel, MessageBatch batch, boolean broadcast) {
+            MetricsRegistry metrics = RedisAPI.getInstance().getMetrics();
+            for (int i = 0; i < batch.size(); i++) {
+                  int index = i;
+                  Runnable handler = metrics.timeHandler(channelBeingCalled.channelName, () -> {
                         switch (channelBeingCalled.functionType) {
-                              case CLASS:
-                                    RedisMessagingReceiveInterface receiveInterface = channelBeingCalled.receiveInterface.getDeclaredConstructor().newInstance();
-                                    receiveInterface.onMessage(channel, message);
-                                    return;
-
-                              case CONSUMER:
-                                    channelBeingCalled.receiveEvent.accept(new RedisMessagingReceiveEvent(channel, message));
-                                    return;
+                              case BINARY -> channelBeingCalled.binaryHandler.onMessage(channel, batch.getPayload(index));
+                              case STRUCTURED -> invokeStructured(channelBeingCalled, channel, batch.getMessage(index));
+                              default -> invoke(channelBeingCalled, channel, withFilterId(broadcast, batch.getText(index)));
                         }
-                        throw new ChannelDefinitionError("No receive event or receive interface was set for the channel '" + channel + "'");
+                  });
+
+                  try {
+                        handler.run();
+                  } catch (Throwable t) {
+                        // Reported the way the lane reports a single message failing
+                        t.printStackTrace();
                   }
             }
       }
 
+      /**
+       * Queues a handler onto the dispatcher of its channel, timing it when metrics are enabled
+       */
+      private static boolean dispatch(RedisChannel channelBeingCalled, String message, Runnable handler) throws InterruptedException {
+            return dispatch(channelBeingCalled, message, handler, channelBeingCalled.options.getOverflowPolicy());
+      }
+
+      private static boolean dispatch(RedisChannel channelBeingCalled, String message, Runnable handler, OverflowPolicy policy) throws InterruptedException {
+            Runnable task = RedisAPI.getInstance().getMetrics().timeHandler(channelBeingCalled.channelName, handler);
+            return channelBeingCalled.dispatcher.dispatch(message, task, policy);
+      }
+
+      /**
+       * Decodes a payload and runs the handler of its channel, called from the dispatch task
+       */
+      private static void handlePayload(RedisChannel channelBeingCalled, String channel, byte[] message, int offset, int length, int codecId, boolean compressed, boolean broadcast) {
+            if (compressed) {
+                  message = PayloadCompression.decompress(message, offset, length);
+                  offset = 0;
+                  length = message.length;
+            }
+
+            switch (channelBeingCalled.functionType) {
+                  case BINARY -> channelBeingCalled.binaryHandler.onMessage(channel, ByteBuffer.wrap(message, offset, length).slice().asReadOnlyBuffer());
+                  case STRUCTURED -> invokeStructured(channelBeingCalled, channel, toMessage(message, offset, length, codecId));
+                  default -> invoke(channelBeingCalled, channel, withFilterId(broadcast, toText(message, offset, length, codecId, false)));
+            }
+      }
+
+      /**
+       * Decodes a payload into the text handlers receive, payloads encoded with a codec other than JSON are converted
+       */
+      static String toText(byte[] message, int offset, int length, int codecId, boolean compressed) {
+            if (compressed) {
+                  message = PayloadCompression.decompress(message, offset, length);
+                  offset = 0;
+                  length = message.length;
+            }
+
+            // Untagged payloads and JSON encoded ones are both plain text
+            if (codecId == 0 || codecId == JsonMessageCodec.ID) return new String(message, offset, length, StandardCharsets.UTF_8);
+            return resolveCodec(codecId).decode(message, offset, length).toString();
+      }
+
+      /**
+       * Decodes a payload into the message structured handlers receive, JSON payloads are parsed lazily as their
+       * fields are read
+       */
+      static RedisParsableMessage toMessage(byte[] message, int offset, int length, int codecId) {
+            boolean json = codecId == 0 || codecId == JsonMessageCodec.ID;
+            if (json && length > 0 && message[offset] == '{')
+                  return RedisParsableMessage.parse(new String(message, offset, length, StandardCharsets.UTF_8));
+            MessageCodec codec = json ? JsonMessageCodec.INSTANCE : resolveCodec(codecId);
+            return RedisParsableMessage.from(codec.decode(message, offset, length));
+      }
+
+      /**
+       * Puts the filter id a binary mode message was sent to in front of its text, the format text handlers receive
+       * in text mode
+       */
+      private static String withFilterId(boolean broadcast, String text) {
+            return (broadcast ? "all" : RedisAPI.getInstance().getAddress()) + ";" + text;
+      }
+
+      static MessageCodec resolveCodec(int codecId) {
+            MessageCodec codec = CodecRegistry.get(codecId);
+            if (codec == null)
+                  throw new InvalidMessageException("Received message was encoded with the codec " + codecId + " which is not registered on this instance");
+            return codec;
+      }
+
+      /**
+       * Strips the filter routed suffix off a channel delivered through a pattern subscription. When filter routing is
+       * enabled both the pattern and its filter routed sub-pattern may match a sub-channel, only the sub-pattern
+       * delivery is kept so the handler runs once.
+       *
+       * @return the channel handlers are given, or null if this delivery is a duplicate
+       */
+      private static String toLogicalChannel(RedisChannel channelBeingCalled, String pattern, String channel) {
+            String suffix = ChannelRegistry.getFilterRoutedSuffix();
+            if (suffix == null || !channel.endsWith(suffix)) return channel;
+            if (pattern.equals(channelBeingCalled.channelName)) return null;
+            return channel.substring(0, channel.length() - suffix.length());
+      }
+
+      private static void invoke(RedisChannel channelBeingCalled, String channel, String message) {
+            if (channelBeingCalled.handler == null)
+                  throw new ChannelDefinitionError("No receive event or receive interface was set for the channel '" + channel + "'");
+
+            channelBeingCalled.handler.onMessage(channel, message);
+      }
+
+      private static void invokeStructured(RedisChannel channelBeingCalled, String channel, RedisParsableMessage message) {
+            channelBeingCalled.structuredHandler.onMessage(channel, message);
+      }
+
+      /**
+       * @return true if the message was published by this process, which already delivered it through loopback
+       */
+      private static boolean isEcho(byte[] message) {
+            return MessageEnvelope.isFramed(message) && MessageEnvelope.isFromOrigin(message, MessageOrigin.ID);
+      }
+
+      private static int indexOf(byte[] message, byte value) {
+            for (int i = 0; i < message.length; i++) {
+                  if (message[i] == value) return i;
+            }
+            return -1;
+      }
+
+      private static boolean isLegacyBroadcast(byte[] message, int separator) {
+            return separator == 3 && message[0] == 'a' && message[1] == 'l' && message[2] == 'l';
+      }
+
+      private static boolean isLegacyAddressedTo(byte[] message, int separator, byte[] filterId) {
+            return isLegacyBroadcast(message, separator)
+                    || (filterId != null && Arrays.equals(message, 0, separator, filterId, 0, filterId.length));
+      }
+
 }
@@ -0,0 +1,93 @@
+package net.swofty.redisapi.events;
+
+import lombok.SneakyThrows;
+import net.swofty.redisapi.exceptions.ChannelDefinitionError;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the handler of a channel once when it is registered, so that dispatching a message to a class handler
+ * costs the same as dispatching it to a consumer.
+ */
+public class HandlerBinding {
+
+    private HandlerBinding() {
+    }
+
+    /**
+     * Binds a consumer into a handler.
+     *
+     * @param consumer the consumer receiving the messages
+     * @return the bound handler
+     */
+    public static RedisMessagingReceiveInterface bind(Consumer<RedisMessagingReceiveEvent> consumer) {
+        return (channel, message) -> consumer.accept(new RedisMessagingReceiveEvent(channel, message));
+    }
+
+    /**
+     * Binds a handler class into a handler, creating instances according to the scope.
+     *
+     * @param type  the handler class, it must have a no-args constructor
+     * @param scope the scope to create instances with, when null the {@link HandlerScope} annotation of the class is
+     *              used and otherwise a new instance is created for every message
+     * @return the bound handler
+     * @throws ChannelDefinitionError if the class can't be instantiated
+     */
+    public static RedisMessagingReceiveInterface bind(Class<? extends RedisMessagingReceiveInterface> type, HandlerScope.Scope scope) {
+        if (scope == null) {
+            HandlerScope annotation = type.getAnnotation(HandlerScope.class);
+            scope = annotation == null ? HandlerScope.Scope.PER_MESSAGE : annotation.value();
+        }
+
+        Supplier<RedisMessagingReceiveInterface> factory = factory(type);
+        return switch (scope) {
+            case SINGLETON -> factory.get();
+            case PER_THREAD -> {
+                ThreadLocal<RedisMessagingReceiveInterface> instances = ThreadLocal.withInitial(factory);
+                yield (channel, message) -> instances.get().onMessage(channel, message);
+            }
+            case PER_MESSAGE -> (channel, message) -> factory.get().onMessage(channel, message);
+        };
+    }
+
+    /**
+     * Generates a factory calling the no-args constructor of the class directly, falling back on a reflective
+     * constructor resolved once when the class is not accessible to a lookup.
+     */
+    @SuppressWarnings("unchecked")
+    private static Supplier<RedisMessagingReceiveInterface> factory(Class<? extends RedisMessagingReceiveInterface> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    constructor,
+                    MethodType.methodType(type));
+            return (Supplier<RedisMessagingReceiveInterface>) (Supplier<?>) site.getTarget().invoke();
+        } catch (Throwable ignored) {
+        }
+
+        Constructor<? extends RedisMessagingReceiveInterface> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (Exception e) {
+            throw new ChannelDefinitionError("The receive interface '" + type.getName() + "' must have a no-args constructor");
+        }
+        return new Supplier<>() {
+            @Override
+            @SneakyThrows
+            public RedisMessagingReceiveInterface get() {
+                return constructor.newInstance();
+            }
+        };
+    }
+}
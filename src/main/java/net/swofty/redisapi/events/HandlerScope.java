@@ -0,0 +1,33 @@
+package net.swofty.redisapi.events;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how many instances of a {@link RedisMessagingReceiveInterface} class are created when it is registered
+ * to a channel. This can be overridden per channel through {@link net.swofty.redisapi.api.ChannelOptions#getHandlerScope()},
+ * classes without either are created once per message.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HandlerScope {
+    Scope value();
+
+    enum Scope {
+        /**
+         * A single instance is created when the channel is registered and shared by every message, it must be thread safe
+         */
+        SINGLETON,
+        /**
+         * One instance is created for each thread handling messages of the channel. Note that with virtual threads
+         * every message usually runs on a new thread, making this the same as {@link #PER_MESSAGE}
+         */
+        PER_THREAD,
+        /**
+         * A new instance is created for every message
+         */
+        PER_MESSAGE
+    }
+}
@@ -0,0 +1,102 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+import net.swofty.redisapi.util.MessageEnvelope;
+import net.swofty.redisapi.util.PayloadCompression;
+import net.swofty.redisapi.util.RedisParsableMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The messages of a received batch. Only the boundaries of the messages are read when the batch is unpacked, each
+ * message is decoded when it is accessed.
+ */
+public final class MessageBatch {
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int codecId;
+
+    private MessageBatch(byte[] data, int[] offsets, int[] lengths, int codecId) {
+        this.data = data;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.codecId = codecId;
+    }
+
+    /**
+     * Reads the boundaries of the messages packed into the payload of a batch.
+     *
+     * @param message    the array holding the payload
+     * @param offset     the index the payload starts at
+     * @param length     the length of the payload
+     * @param codecId    the id of the codec the messages were encoded with, 0 if they are not structured
+     * @param compressed whether the payload is compressed
+     * @throws InvalidMessageException if the payload is not a well formed batch
+     */
+    static MessageBatch unpack(byte[] message, int offset, int length, int codecId, boolean compressed) {
+        if (compressed) {
+            message = PayloadCompression.decompress(message, offset, length);
+            offset = 0;
+            length = message.length;
+        }
+
+        int end = offset + length;
+        int count = 0;
+        for (int index = offset; index < end; count++) {
+            index += MessageEnvelope.BATCH_LENGTH_BYTES + readLength(message, index, end);
+        }
+
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0, index = offset; i < count; i++) {
+            lengths[i] = readLength(message, index, end);
+            offsets[i] = index + MessageEnvelope.BATCH_LENGTH_BYTES;
+            index = offsets[i] + lengths[i];
+        }
+        return new MessageBatch(message, offsets, lengths, codecId);
+    }
+
+    /**
+     * @return the amount of messages in the batch
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @param index the index of the message
+     * @return read only view over the raw payload of the message
+     */
+    public ByteBuffer getPayload(int index) {
+        return ByteBuffer.wrap(data, offsets[index], lengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @param index the index of the message
+     * @return the message as the text handlers of text channels receive, converted to JSON if it was encoded with
+     * another codec
+     */
+    public String getText(int index) {
+        return EventRegistry.toText(data, offsets[index], lengths[index], codecId, false);
+    }
+
+    /**
+     * @param index the index of the message
+     * @return the message decoded with the codec it was sent with, messages that are not structured are parsed as JSON
+     */
+    public RedisParsableMessage getMessage(int index) {
+        return EventRegistry.toMessage(data, offsets[index], lengths[index], codecId);
+    }
+
+    private static int readLength(byte[] message, int index, int end) {
+        if (index + MessageEnvelope.BATCH_LENGTH_BYTES > end)
+            throw new InvalidMessageException("Received batch is truncated");
+
+        int length = ((message[index] & 0xFF) << 24) | ((message[index + 1] & 0xFF) << 16)
+                | ((message[index + 2] & 0xFF) << 8) | (message[index + 3] & 0xFF);
+        if (length < 0 || length > end - index - MessageEnvelope.BATCH_LENGTH_BYTES)
+            throw new InvalidMessageException("Received batch is truncated");
+        return length;
+    }
+}
@@ -0,0 +1,138 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.api.OverflowPolicy;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded queue of tasks which are ran one after another on a shared executor. At most one thread drains a lane
+ * at any time, so tasks in the same lane never overlap and always run in the order they were submitted, while
+ * different lanes are free to run in parallel.
+ * <p>
+ * A task ran by the lane may submit to that same lane, e.g. a handler publishing to its own channel with loopback.
+ * As the lane can't make room while its only thread waits, such a task is queued past the capacity instead of blocking.
+ */
+class OrderedLane implements Runnable {
+    /**
+     * Default maximum amount of tasks ran before the lane gives its thread back to the executor, so busy lanes can't
+     * starve others
+     */
+    static final int MAX_TASKS_PER_RUN = 64;
+
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    /**
+     * Free room in the lane, every queued task within the capacity holds one permit until it is taken off the queue
+     */
+    private final Semaphore room;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final int maxTasksPerRun;
+    private volatile Executor executor;
+    /**
+     * The thread currently draining the lane, or null
+     */
+    private volatile Thread worker;
+
+    OrderedLane(int capacity) {
+        this(capacity, MAX_TASKS_PER_RUN);
+    }
+
+    OrderedLane(int capacity, int maxTasksPerRun) {
+        this.room = new Semaphore(capacity);
+        this.maxTasksPerRun = maxTasksPerRun;
+    }
+
+    /**
+     * Adds a task to the lane and makes sure the lane is scheduled on the executor.
+     *
+     * @return false if the task was discarded because of the overflow policy
+     */
+    boolean submit(Runnable task, OverflowPolicy policy, Executor executor) throws InterruptedException {
+        switch (policy) {
+            case BLOCK -> {
+                if (Thread.currentThread() == worker) {
+                    queue.add(new Entry(task, room.tryAcquire()));
+                } else {
+                    room.acquire();
+                    queue.add(new Entry(task, true));
+                }
+            }
+            case DROP_NEWEST, FAIL -> {
+                if (!room.tryAcquire()) {
+                    dropped.increment();
+                    return false;
+                }
+                queue.add(new Entry(task, true));
+            }
+            case DROP_OLDEST -> {
+                while (!room.tryAcquire()) {
+                    Entry oldest = queue.poll();
+                    if (oldest != null) {
+                        release(oldest);
+                        dropped.increment();
+                    }
+                }
+                queue.add(new Entry(task, true));
+            }
+        }
+
+        schedule(executor);
+        return true;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    private void schedule(Executor executor) {
+        if (!scheduled.compareAndSet(false, true)) return;
+
+        this.executor = executor;
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            throw e;
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry.holdsRoom()) room.release();
+    }
+
+    @Override
+    public void run() {
+        worker = Thread.currentThread();
+        Entry entry;
+        int ran = 0;
+        while (ran++ < maxTasksPerRun && (entry = queue.poll()) != null) {
+            release(entry);
+            try {
+                entry.task().run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+
+        worker = null;
+        scheduled.set(false);
+        // A task may have been added after the last poll but before the flag was cleared
+        if (!queue.isEmpty()) schedule(executor);
+    }
+
+    /**
+     * @param holdsRoom false if the task was queued past the capacity
+     */
+    private record Entry(Runnable task, boolean holdsRoom) {
+    }
+}
@@ -0,0 +1,12 @@
+package net.swofty.redisapi.events;
+
+/**
+ * Receives every message of a batch in a single call, set through {@link net.swofty.redisapi.api.ChannelOptions}.
+ */
+public interface RedisBatchReceiveInterface {
+    /**
+     * @param channel the channel the batch was received on
+     * @param batch   the messages of the batch, in the order they were published
+     */
+    void onBatch(String channel, MessageBatch batch);
+}
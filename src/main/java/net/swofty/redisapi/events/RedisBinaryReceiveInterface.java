@@ -0,0 +1,14 @@
+package net.swofty.redisapi.events;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the raw payload of messages, used with binary mode to skip decoding the payload into a String.
+ */
+public interface RedisBinaryReceiveInterface {
+    /**
+     * @param channel the channel the message was received on
+     * @param payload read only view over the payload of the message, without the envelope
+     */
+    void onMessage(String channel, ByteBuffer payload);
+}
@@ -0,0 +1,14 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.util.RedisParsableMessage;
+
+/**
+ * Receives messages already decoded by the codec they were sent with, used for channels carrying structured messages.
+ */
+public interface RedisStructuredReceiveInterface {
+    /**
+     * @param channel the channel the message was received on
+     * @param message the decoded message
+     */
+    void onMessage(String channel, RedisParsableMessage message);
+}
@@ -0,0 +1,197 @@
+package net.swofty.redisapi.events;
+
+import lombok.NonNull;
+import net.swofty.redisapi.api.ChannelPriority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The default dispatch executor, running the lanes of every channel on a fixed set of threads with a queue per
+ * {@link ChannelPriority}. A free thread picks the queue it takes its next task from by smooth weighted round robin
+ * over the queues that have work waiting, so a backlog on bulk channels delays a high priority lane by at most the
+ * run of the lanes already on the threads, while bulk lanes keep getting their share and never starve.
+ */
+public class WeightedDispatchExecutor extends AbstractExecutorService {
+    private static final ChannelPriority[] PRIORITIES = ChannelPriority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Runnable>[] queues;
+    private final int[] credits = new int[PRIORITIES.length];
+    private final Executor[] views = new Executor[PRIORITIES.length];
+    private final Thread[] threads;
+    private volatile boolean shutdown;
+
+    /**
+     * @param name        the name prefix of the threads
+     * @param threadCount the amount of threads
+     */
+    @SuppressWarnings("unchecked")
+    public WeightedDispatchExecutor(@NonNull String name, int threadCount) {
+        this.queues = new ArrayDeque[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            int index = i;
+            queues[i] = new ArrayDeque<>();
+            views[i] = task -> enqueue(index, task);
+        }
+
+        this.threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(this::run, name + "-" + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * @param priority the priority class
+     * @return executor queueing its tasks with the given priority
+     */
+    public Executor forPriority(@NonNull ChannelPriority priority) {
+        return views[priority.ordinal()];
+    }
+
+    /**
+     * Queues a task with {@link ChannelPriority#NORMAL} priority.
+     */
+    @Override
+    public void execute(@NonNull Runnable task) {
+        enqueue(ChannelPriority.NORMAL.ordinal(), task);
+    }
+
+    /**
+     * @param priority the priority class
+     * @return the amount of tasks of the given priority waiting for a thread
+     */
+    public int getQueuedCount(@NonNull ChannelPriority priority) {
+        lock.lock();
+        try {
+            return queues[priority.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> remaining = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (ArrayDeque<Runnable> queue : queues) {
+                remaining.addAll(queue);
+                queue.clear();
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        return remaining;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!shutdown) return false;
+        for (Thread thread : threads) {
+            if (thread.isAlive()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : threads) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return isTerminated();
+            TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+        }
+        return isTerminated();
+    }
+
+    private void enqueue(int index, Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) throw new RejectedExecutionException("The dispatch executor has been shut down");
+            queues[index].addLast(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        Runnable task;
+        try {
+            while ((task = take()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * @return the next task to run, or null once the executor is shut down and every queue is drained
+     */
+    private Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                int total = 0;
+                int picked = -1;
+                for (int i = 0; i < queues.length; i++) {
+                    if (queues[i].isEmpty()) {
+                        credits[i] = 0;
+                        continue;
+                    }
+
+                    int weight = PRIORITIES[i].getWeight();
+                    credits[i] += weight;
+                    total += weight;
+                    if (picked < 0 || credits[i] > credits[picked]) picked = i;
+                }
+
+                if (picked >= 0) {
+                    credits[picked] -= total;
+                    return queues[picked].pollFirst();
+                }
+                if (shutdown) return null;
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
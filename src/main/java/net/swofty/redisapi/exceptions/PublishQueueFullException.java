@@ -0,0 +1,9 @@
+package net.swofty.redisapi.exceptions;
+
+public class PublishQueueFullException extends RuntimeException {
+
+    public PublishQueueFullException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,193 @@
+package net.swofty.redisapi.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable matcher compiled from a set of Redis glob patterns ({@code *}, {@code ?}, {@code [abc]}, {@code [^a-z]}
+ * and {@code \} escapes). All patterns are merged into a single trie which is walked as an automaton, so patterns
+ * sharing a prefix share the work of matching it and the cost of matching a channel stays flat as patterns are added,
+ * instead of testing every pattern in turn.
+ *
+ * @param <T> the value each pattern maps to
+ */
+public final class GlobMatcher<T> {
+    private final Node<T> root = new Node<>(0);
+    private final int nodeCount;
+
+    /**
+     * @param patterns the patterns to compile, mapped to the value returned when they match
+     * @throws IllegalArgumentException if a pattern contains an unterminated character class
+     */
+    public GlobMatcher(Map<String, T> patterns) {
+        int[] ids = {1};
+        patterns.forEach((pattern, value) -> {
+            Node<T> node = root;
+            for (Token token : tokenize(pattern)) {
+                node = node.child(token, ids);
+            }
+            node.values.add(value);
+        });
+        this.nodeCount = ids[0];
+    }
+
+    /**
+     * @param channel the channel name to match
+     * @return the values of every pattern matching the channel, empty if none match
+     */
+    public List<T> match(String channel) {
+        BitSet seen = new BitSet(nodeCount);
+        List<Node<T>> active = new ArrayList<>();
+        enter(root, active, seen);
+
+        for (int i = 0; i < channel.length() && !active.isEmpty(); i++) {
+            char c = channel.charAt(i);
+            List<Node<T>> next = new ArrayList<>();
+            seen.clear();
+
+            for (Node<T> node : active) {
+                if (node.star) enter(node, next, seen);
+
+                Node<T> literal = node.literals.get(c);
+                if (literal != null) enter(literal, next, seen);
+                if (node.any != null) enter(node.any, next, seen);
+                for (int j = 0; j < node.classes.size(); j++) {
+                    if (node.classes.get(j).matches(c)) enter(node.classChildren.get(j), next, seen);
+                }
+            }
+            active = next;
+        }
+
+        List<T> matched = null;
+        for (Node<T> node : active) {
+            if (node.values.isEmpty()) continue;
+            if (matched == null) matched = new ArrayList<>();
+            matched.addAll(node.values);
+        }
+        return matched == null ? Collections.emptyList() : matched;
+    }
+
+    /**
+     * Adds a node to the active set, along with the star nodes reachable from it without consuming a character.
+     */
+    private static <T> void enter(Node<T> node, List<Node<T>> active, BitSet seen) {
+        while (node != null && !seen.get(node.id)) {
+            seen.set(node.id);
+            active.add(node);
+            node = node.starChild;
+        }
+    }
+
+    private static List<Token> tokenize(String pattern) {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    // Consecutive stars behave as one
+                    if (tokens.isEmpty() || tokens.get(tokens.size() - 1).type != TokenType.STAR)
+                        tokens.add(new Token(TokenType.STAR, (char) 0, null));
+                }
+                case '?' -> tokens.add(new Token(TokenType.ANY, (char) 0, null));
+                case '[' -> {
+                    int end = i + 1;
+                    while (end < pattern.length() && pattern.charAt(end) != ']') {
+                        if (pattern.charAt(end) == '\\') end++;
+                        end++;
+                    }
+                    if (end >= pattern.length()) throw new IllegalArgumentException("Unterminated character class in pattern '" + pattern + "'");
+
+                    tokens.add(new Token(TokenType.CLASS, (char) 0, CharClass.parse(pattern.substring(i + 1, end))));
+                    i = end;
+                }
+                case '\\' -> {
+                    if (i + 1 < pattern.length()) c = pattern.charAt(++i);
+                    tokens.add(new Token(TokenType.LITERAL, c, null));
+                }
+                default -> tokens.add(new Token(TokenType.LITERAL, c, null));
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType {
+        LITERAL, ANY, STAR, CLASS
+    }
+
+    private record Token(TokenType type, char literal, CharClass charClass) {
+    }
+
+    private record CharClass(boolean negated, String members, String rangeStarts, String rangeEnds) {
+        private static CharClass parse(String body) {
+            boolean negated = body.startsWith("^");
+            StringBuilder members = new StringBuilder();
+            StringBuilder rangeStarts = new StringBuilder();
+            StringBuilder rangeEnds = new StringBuilder();
+
+            for (int i = negated ? 1 : 0; i < body.length(); i++) {
+                char c = body.charAt(i);
+                if (c == '\\' && i + 1 < body.length()) {
+                    members.append(body.charAt(++i));
+                } else if (i + 2 < body.length() && body.charAt(i + 1) == '-') {
+                    char end = body.charAt(i + 2);
+                    rangeStarts.append((char) Math.min(c, end));
+                    rangeEnds.append((char) Math.max(c, end));
+                    i += 2;
+                } else {
+                    members.append(c);
+                }
+            }
+            return new CharClass(negated, members.toString(), rangeStarts.toString(), rangeEnds.toString());
+        }
+
+        private boolean matches(char c) {
+            boolean found = members.indexOf(c) >= 0;
+            for (int i = 0; !found && i < rangeStarts.length(); i++) {
+                found = c >= rangeStarts.charAt(i) && c <= rangeEnds.charAt(i);
+            }
+            return found != negated;
+        }
+    }
+
+    private static final class Node<T> {
+        private final int id;
+        private final Map<Character, Node<T>> literals = new HashMap<>();
+        private final List<CharClass> classes = new ArrayList<>();
+        private final List<Node<T>> classChildren = new ArrayList<>();
+        private final List<T> values = new ArrayList<>(1);
+        private Node<T> any;
+        private Node<T> starChild;
+        private boolean star;
+
+        private Node(int id) {
+            this.id = id;
+        }
+
+        private Node<T> child(Token token, int[] ids) {
+            return switch (token.type) {
+                case LITERAL -> literals.computeIfAbsent(token.literal, ignored -> new Node<>(ids[0]++));
+                case ANY -> any != null ? any : (any = new Node<>(ids[0]++));
+                case STAR -> {
+                    if (starChild == null) {
+                        starChild = new Node<>(ids[0]++);
+                        starChild.star = true;
+                    }
+                    yield starChild;
+                }
+                case CLASS -> {
+                    int existing = classes.indexOf(token.charClass);
+                    if (existing >= 0) yield classChildren.get(existing);
+
+                    Node<T> node = new Node<>(ids[0]++);
+                    classes.add(token.charClass);
+                    classChildren.add(node);
+                    yield node;
+                }
+            };
+        }
+    }
+}
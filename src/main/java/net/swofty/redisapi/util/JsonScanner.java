@@ -0,0 +1,164 @@
+package net.swofty.redisapi.util;
+
+import org.json.JSONTokener;
+
+/**
+ * Finds and reads the values of the top level fields of JSON object text without building the tree, used by
+ * {@link RedisParsableMessage} to only decode the fields that are read. Anything it doesn't understand is reported as
+ * {@link #MALFORMED}, callers then fall back to a full parse which either reports the actual error or accepts the
+ * lenient syntax org.json allows.
+ */
+final class JsonScanner {
+    static final int ABSENT = -1;
+    static final int MALFORMED = -2;
+
+    private JsonScanner() {
+    }
+
+    /**
+     * @param text  the text holding the object
+     * @param start the index the object starts at, leading whitespace is skipped
+     * @param end   the index the object ends at
+     * @param key   the key of the field
+     * @return the index the value of the field starts at, {@link #ABSENT} or {@link #MALFORMED}
+     */
+    static int find(String text, int start, int end, String key) {
+        int i = skipWhitespace(text, start, end);
+        if (i >= end || text.charAt(i) != '{') return MALFORMED;
+        i = skipWhitespace(text, i + 1, end);
+        if (i < end && text.charAt(i) == '}') return ABSENT;
+
+        while (i < end) {
+            if (text.charAt(i) != '"') return MALFORMED;
+            int keyEnd = skipString(text, i, end);
+            if (keyEnd < 0) return MALFORMED;
+            boolean matches = keyEquals(text, i + 1, keyEnd - 1, key);
+
+            i = skipWhitespace(text, keyEnd, end);
+            if (i >= end || text.charAt(i) != ':') return MALFORMED;
+            i = skipWhitespace(text, i + 1, end);
+            if (matches) return i < end ? i : MALFORMED;
+
+            i = skipValue(text, i, end);
+            if (i < 0) return MALFORMED;
+            i = skipWhitespace(text, i, end);
+            if (i >= end) return MALFORMED;
+            char c = text.charAt(i);
+            if (c == '}') return ABSENT;
+            if (c != ',') return MALFORMED;
+            i = skipWhitespace(text, i + 1, end);
+        }
+        return MALFORMED;
+    }
+
+    /**
+     * @return the index right after the value starting at the given index, or {@link #MALFORMED}
+     */
+    static int skipValue(String text, int i, int end) {
+        if (i >= end) return MALFORMED;
+        char c = text.charAt(i);
+        if (c == '"') return skipString(text, i, end);
+        if (c == '\'') return MALFORMED;
+
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (i < end) {
+                c = text.charAt(i);
+                if (c == '"') {
+                    i = skipString(text, i, end);
+                    if (i < 0) return MALFORMED;
+                    continue;
+                }
+                if (c == '\'') return MALFORMED;
+                if (c == '{' || c == '[') depth++;
+                else if ((c == '}' || c == ']') && --depth == 0) return i + 1;
+                i++;
+            }
+            return MALFORMED;
+        }
+
+        int from = i;
+        while (i < end && !isLiteralEnd(text.charAt(i))) i++;
+        return i > from ? i : MALFORMED;
+    }
+
+    /**
+     * @param i   the index of the opening quote
+     * @param end the index right after the closing quote
+     * @return the string between the quotes, escape sequences are only decoded if there are any
+     */
+    static String readString(String text, int i, int end) {
+        for (int j = i + 1; j < end - 1; j++) {
+            if (text.charAt(j) == '\\') return (String) new JSONTokener(text.substring(i, end)).nextValue();
+        }
+        return text.substring(i + 1, end - 1);
+    }
+
+    /**
+     * @return true if the value is an integer of at most the given amount of digits, without leading zeros
+     */
+    static boolean isInteger(String text, int i, int end, int maxDigits) {
+        if (i < end && text.charAt(i) == '-') i++;
+        int digits = end - i;
+        if (digits < 1 || digits > maxDigits) return false;
+        if (digits > 1 && text.charAt(i) == '0') return false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads an integer checked by {@link #isInteger(String, int, int, int)} with at most 18 digits.
+     */
+    static long readInteger(String text, int i, int end) {
+        boolean negative = text.charAt(i) == '-';
+        if (negative) i++;
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return true if the value only holds the characters of a JSON number
+     */
+    static boolean isNumber(String text, int i, int end) {
+        if (i >= end) return false;
+        char first = text.charAt(i);
+        if (first != '-' && (first < '0' || first > '9')) return false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') return false;
+        }
+        return true;
+    }
+
+    private static int skipString(String text, int i, int end) {
+        for (int j = i + 1; j < end; j++) {
+            char c = text.charAt(j);
+            if (c == '\\') j++;
+            else if (c == '"') return j + 1;
+        }
+        return MALFORMED;
+    }
+
+    private static boolean keyEquals(String text, int from, int to, String key) {
+        for (int j = from; j < to; j++) {
+            // Escaped keys are rare, they are compared once decoded
+            if (text.charAt(j) == '\\') return key.equals(readString(text, from - 1, to + 1));
+        }
+        return to - from == key.length() && text.regionMatches(from, key, 0, key.length());
+    }
+
+    private static boolean isLiteralEnd(char c) {
+        return c == ',' || c == '}' || c == ']' || Character.isWhitespace(c);
+    }
+
+    private static int skipWhitespace(String text, int i, int end) {
+        while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+}
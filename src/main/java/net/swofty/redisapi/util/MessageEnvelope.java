@@ -0,0 +1,297 @@
+package net.swofty.redisapi.util;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The framed envelope every message is wrapped in when binary mode is enabled. The header is read in place straight
+ * from the received bytes, without decoding or copying anything.
+ * <pre>
+ * byte 0      magic, {@link #MAGIC}
+ * byte 1      version of the envelope
+ * byte 2      flags
+ * byte 3-4    payload offset, unsigned big endian
+ * byte 5      filter id length
+ * byte 6..    filter id, UTF-8
+ * ...         optional header fields in flag order, skipped by readers that don't know them
+ * offset..    payload
+ * </pre>
+ * Optional header fields:
+ * <ul>
+ *     <li>{@link #FLAG_CODEC}, one byte holding the id of the {@link net.swofty.redisapi.api.codec.MessageCodec}
+ *     the payload was encoded with</li>
+ *     <li>{@link #FLAG_ORIGIN}, eight bytes holding the {@link MessageOrigin} of the process that published the
+ *     message, big endian</li>
+ * </ul>
+ * When {@link #FLAG_BATCH} is set the payload packs several messages, each prefixed with its length as four bytes big
+ * endian. Every other flag applies to the batch as a whole, so all of its messages share the filter id and codec, and
+ * compression covers the packed payload.
+ * <p>
+ * The magic byte can never start a valid UTF-8 string, so framed messages can't be confused with the legacy
+ * {@code filterId;message} text format.
+ */
+public final class MessageEnvelope {
+    public static final byte MAGIC = (byte) 0xAF;
+    public static final byte VERSION = 1;
+
+    /**
+     * Set when the payload is a structured message, the codec id is written into the header
+     */
+    public static final int FLAG_CODEC = 0x01;
+
+    /**
+     * Set when the payload is compressed with {@link PayloadCompression}, this has no header field
+     */
+    public static final int FLAG_COMPRESSED = 0x02;
+
+    /**
+     * Set when the message was also delivered to the handlers of the publishing process, the origin id of that
+     * process is written into the header
+     */
+    public static final int FLAG_ORIGIN = 0x04;
+
+    /**
+     * Set when the payload packs several messages published together, this has no header field
+     */
+    public static final int FLAG_BATCH = 0x08;
+
+    /**
+     * Size of the length prefix of every message packed into a batch
+     */
+    public static final int BATCH_LENGTH_BYTES = Integer.BYTES;
+
+    private static final int VERSION_INDEX = 1;
+    private static final int FLAGS_INDEX = 2;
+    private static final int OFFSET_INDEX = 3;
+    private static final int FILTER_LENGTH_INDEX = 5;
+    private static final int FILTER_INDEX = 6;
+
+    private static final byte[] ALL = "all".getBytes(StandardCharsets.UTF_8);
+
+    private MessageEnvelope() {
+    }
+
+    /**
+     * Wraps a payload in an envelope.
+     *
+     * @param filterId the filter id the message is sent to, encoded as UTF-8
+     * @param payload  the payload of the message
+     * @return the framed message
+     */
+    public static byte[] encode(byte[] filterId, byte[] payload) {
+        return encode(filterId, 0, payload, 0, payload.length);
+    }
+
+    /**
+     * Wraps a slice of a payload in an envelope.
+     *
+     * @param filterId      the filter id the message is sent to, encoded as UTF-8
+     * @param flags         the flags of the message
+     * @param payload       the array holding the payload
+     * @param payloadOffset the index the payload starts at
+     * @param payloadLength the length of the payload
+     * @return the framed message
+     * @throws IllegalArgumentException if the filter id is longer than 255 bytes
+     */
+    public static byte[] encode(byte[] filterId, int flags, byte[] payload, int payloadOffset, int payloadLength) {
+        return encode(filterId, flags & ~FLAG_CODEC, (byte) 0, payload, payloadOffset, payloadLength);
+    }
+
+    /**
+     * Wraps a structured payload in an envelope, tagged with the codec it was encoded with.
+     *
+     * @param filterId the filter id the message is sent to, encoded as UTF-8
+     * @param codec    the id of the codec the payload was encoded with
+     * @param payload  the encoded payload
+     * @return the framed message
+     */
+    public static byte[] encode(byte[] filterId, byte codec, byte[] payload) {
+        return encode(filterId, FLAG_CODEC, codec, payload, 0, payload.length);
+    }
+
+    /**
+     * Wraps a slice of a payload in an envelope, with every header field.
+     *
+     * @param filterId      the filter id the message is sent to, encoded as UTF-8
+     * @param flags         the flags of the message
+     * @param codec         the id of the codec the payload was encoded with, only written if {@link #FLAG_CODEC} is set
+     * @param payload       the array holding the payload
+     * @param payloadOffset the index the payload starts at
+     * @param payloadLength the length of the payload
+     * @return the framed message
+     * @throws IllegalArgumentException if the filter id is longer than 255 bytes
+     */
+    public static byte[] encode(byte[] filterId, int flags, byte codec, byte[] payload, int payloadOffset, int payloadLength) {
+        return encode(filterId, flags & ~FLAG_ORIGIN, codec, 0, payload, payloadOffset, payloadLength);
+    }
+
+    /**
+     * Wraps a slice of a payload in an envelope, with every header field including the origin.
+     *
+     * @param filterId      the filter id the message is sent to, encoded as UTF-8
+     * @param flags         the flags of the message
+     * @param codec         the id of the codec the payload was encoded with, only written if {@link #FLAG_CODEC} is set
+     * @param origin        the origin id of the publishing process, only written if {@link #FLAG_ORIGIN} is set
+     * @param payload       the array holding the payload
+     * @param payloadOffset the index the payload starts at
+     * @param payloadLength the length of the payload
+     * @return the framed message
+     * @throws IllegalArgumentException if the filter id is longer than 255 bytes
+     */
+    public static byte[] encode(byte[] filterId, int flags, byte codec, long origin, byte[] payload, int payloadOffset, int payloadLength) {
+        if (filterId.length > 0xFF)
+            throw new IllegalArgumentException("Filter ids can be at most 255 bytes long");
+
+        int fieldsIndex = FILTER_INDEX + filterId.length;
+        int headerLength = fieldsIndex + ((flags & FLAG_CODEC) != 0 ? 1 : 0) + ((flags & FLAG_ORIGIN) != 0 ? Long.BYTES : 0);
+        byte[] message = new byte[headerLength + payloadLength];
+        message[0] = MAGIC;
+        message[VERSION_INDEX] = VERSION;
+        message[FLAGS_INDEX] = (byte) flags;
+        message[OFFSET_INDEX] = (byte) (headerLength >>> 8);
+        message[OFFSET_INDEX + 1] = (byte) headerLength;
+        message[FILTER_LENGTH_INDEX] = (byte) filterId.length;
+        System.arraycopy(filterId, 0, message, FILTER_INDEX, filterId.length);
+        if ((flags & FLAG_CODEC) != 0) message[fieldsIndex++] = codec;
+        if ((flags & FLAG_ORIGIN) != 0) {
+            for (int i = Long.BYTES - 1; i >= 0; i--) {
+                message[fieldsIndex + i] = (byte) origin;
+                origin >>>= 8;
+            }
+        }
+        System.arraycopy(payload, payloadOffset, message, headerLength, payloadLength);
+        return message;
+    }
+
+    /**
+     * Packs several payloads into the payload of a batch, each prefixed with its length.
+     *
+     * @param payloads the payloads, in the order they are handled in
+     * @param length   the total length of the payloads, without their prefixes
+     * @return the packed payload
+     */
+    public static byte[] packBatch(List<byte[]> payloads, int length) {
+        byte[] packed = new byte[length + payloads.size() * BATCH_LENGTH_BYTES];
+        int index = 0;
+        for (byte[] payload : payloads) {
+            packed[index] = (byte) (payload.length >>> 24);
+            packed[index + 1] = (byte) (payload.length >>> 16);
+            packed[index + 2] = (byte) (payload.length >>> 8);
+            packed[index + 3] = (byte) payload.length;
+            System.arraycopy(payload, 0, packed, index + BATCH_LENGTH_BYTES, payload.length);
+            index += BATCH_LENGTH_BYTES + payload.length;
+        }
+        return packed;
+    }
+
+    /**
+     * @param message the received message
+     * @return true if the message is framed in an envelope, false if it uses the legacy text format
+     */
+    public static boolean isFramed(byte[] message) {
+        return message.length > FILTER_LENGTH_INDEX && message[0] == MAGIC;
+    }
+
+    /**
+     * @param message a framed message
+     * @return the version of the envelope the message was framed with
+     */
+    public static int version(byte[] message) {
+        return message[VERSION_INDEX] & 0xFF;
+    }
+
+    /**
+     * @param message a framed message
+     * @return the flags of the message
+     */
+    public static int flags(byte[] message) {
+        return message[FLAGS_INDEX] & 0xFF;
+    }
+
+    /**
+     * @param message a framed message
+     * @return the index the payload starts at
+     * @throws InvalidMessageException if the header is malformed
+     */
+    public static int payloadOffset(byte[] message) {
+        int offset = ((message[OFFSET_INDEX] & 0xFF) << 8) | (message[OFFSET_INDEX + 1] & 0xFF);
+        if (offset < FILTER_INDEX + filterLength(message) || offset > message.length)
+            throw new InvalidMessageException("Received message has a malformed envelope header");
+        return offset;
+    }
+
+    /**
+     * @param message a framed message
+     * @return the id of the codec the payload was encoded with, or 0 if the payload is not a structured message
+     * @throws InvalidMessageException if the header is malformed
+     */
+    public static int codec(byte[] message) {
+        if ((flags(message) & FLAG_CODEC) == 0) return 0;
+
+        int index = FILTER_INDEX + filterLength(message);
+        if (index >= payloadOffset(message))
+            throw new InvalidMessageException("Received message has a malformed envelope header");
+        return message[index] & 0xFF;
+    }
+
+    /**
+     * @param message a framed message
+     * @param origin  the origin id of this process
+     * @return true if the message was published by the process with the given origin id
+     */
+    public static boolean isFromOrigin(byte[] message, long origin) {
+        int flags = flags(message);
+        if ((flags & FLAG_ORIGIN) == 0) return false;
+
+        int index = FILTER_INDEX + filterLength(message) + ((flags & FLAG_CODEC) != 0 ? 1 : 0);
+        if (index + Long.BYTES > payloadOffset(message)) return false;
+
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (message[index + i] & 0xFF);
+        }
+        return value == origin;
+    }
+
+    /**
+     * Checks the filter id of a framed message without decoding it.
+     *
+     * @param message  a framed message
+     * @param filterId the filter id of this instance encoded as UTF-8, may be null
+     * @return true if the message is sent to every instance or to the given filter id
+     */
+    public static boolean isAddressedTo(byte[] message, byte[] filterId) {
+        int length = filterLength(message);
+        int end = FILTER_INDEX + length;
+        if (end > message.length) return false;
+
+        return Arrays.equals(message, FILTER_INDEX, end, ALL, 0, ALL.length)
+                || (filterId != null && Arrays.equals(message, FILTER_INDEX, end, filterId, 0, filterId.length));
+    }
+
+    /**
+     * @param message a framed message
+     * @return true if the message is sent to every instance
+     */
+    public static boolean isBroadcast(byte[] message) {
+        int end = FILTER_INDEX + filterLength(message);
+        return end <= message.length && Arrays.equals(message, FILTER_INDEX, end, ALL, 0, ALL.length);
+    }
+
+    /**
+     * Decodes the filter id of a framed message, this allocates and is meant for logging and debugging.
+     *
+     * @param message a framed message
+     * @return the filter id
+     */
+    public static String filterId(byte[] message) {
+        return new String(message, FILTER_INDEX, filterLength(message), StandardCharsets.UTF_8);
+    }
+
+    private static int filterLength(byte[] message) {
+        return message[FILTER_LENGTH_INDEX] & 0xFF;
+    }
+}
@@ -0,0 +1,55 @@
+package net.swofty.redisapi.util;
+
+import java.security.SecureRandom;
+
+/**
+ * Identifies the process a message was published from, so that messages this process already delivered to its own
+ * handlers through loopback can be recognised and dropped when Redis echoes them back. Framed messages carry the
+ * origin in the {@link MessageEnvelope#FLAG_ORIGIN} header field, text messages carry it after their filter id as
+ * {@code filterId<US>origin;message}, where {@code <US>} is the ASCII unit separator.
+ */
+public final class MessageOrigin {
+    public static final char SEPARATOR = '\u001F';
+
+    /**
+     * Random id of this process, never 0
+     */
+    public static final long ID = generateId();
+
+    /**
+     * Written after the filter id of text messages published by this process
+     */
+    public static final String TEXT_TAG = SEPARATOR + Long.toUnsignedString(ID, 36);
+
+    /**
+     * Filter id that reaches this process alone, used in place of a filter id by instances that have none
+     */
+    public static final String ADDRESS = "instance-" + Long.toUnsignedString(ID, 36);
+
+    private MessageOrigin() {
+    }
+
+    /**
+     * Removes the origin tag from a text message.
+     *
+     * @param message the raw message, including the filter id
+     * @return the message without its origin tag, or null if it was published by this process
+     */
+    public static String strip(String message) {
+        int separator = message.indexOf(';');
+        int tag = separator < 0 ? -1 : message.lastIndexOf(SEPARATOR, separator);
+        if (tag < 0) return message;
+
+        if (separator - tag == TEXT_TAG.length() && message.startsWith(TEXT_TAG, tag)) return null;
+        return message.substring(0, tag).concat(message.substring(separator));
+    }
+
+    private static long generateId() {
+        SecureRandom random = new SecureRandom();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+}
@@ -0,0 +1,134 @@
+package net.swofty.redisapi.util;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of message payloads, used for envelopes flagged with {@link MessageEnvelope#FLAG_COMPRESSED}.
+ * Deflaters, inflaters and the buffers compressed into are pooled, so compressing large payloads only allocates the
+ * final framed message. A compressed payload is the uncompressed length as four big endian bytes followed by the raw
+ * deflate stream.
+ */
+public final class PayloadCompression {
+    /**
+     * Payloads inflating to more than this are rejected instead of being allocated
+     */
+    public static final int MAX_INFLATED_LENGTH = 64 * 1024 * 1024;
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+    private static final int LENGTH_PREFIX = 4;
+
+    private static final Queue<Compressor> COMPRESSORS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final Queue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private PayloadCompression() {
+    }
+
+    /**
+     * Compresses a payload and frames it, the compressed bytes are only valid for the duration of the call.
+     *
+     * @param payload the payload to compress
+     * @param framer  frames the compressed payload into the message that is sent
+     * @return the framed message, or null if compressing would not make the payload smaller
+     */
+    public static byte[] compress(byte[] payload, Framer framer) {
+        Compressor compressor = COMPRESSORS.poll();
+        if (compressor == null) compressor = new Compressor();
+
+        try {
+            int length = compressor.compress(payload);
+            return length < 0 ? null : framer.frame(compressor.buffer, length);
+        } finally {
+            compressor.release();
+        }
+    }
+
+    /**
+     * Inflates a compressed payload.
+     *
+     * @param buffer the array holding the compressed payload
+     * @param offset the index the compressed payload starts at
+     * @param length the length of the compressed payload
+     * @return the inflated payload
+     * @throws InvalidMessageException if the payload is not valid compressed data
+     */
+    public static byte[] decompress(byte[] buffer, int offset, int length) {
+        if (length < LENGTH_PREFIX) throw new InvalidMessageException("Received compressed message is truncated");
+
+        int inflatedLength = ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+                | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+        if (inflatedLength < 0 || inflatedLength > MAX_INFLATED_LENGTH)
+            throw new InvalidMessageException("Received compressed message declares an invalid length of " + inflatedLength);
+
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) inflater = new Inflater(true);
+
+        try {
+            byte[] inflated = new byte[inflatedLength];
+            inflater.setInput(buffer, offset + LENGTH_PREFIX, length - LENGTH_PREFIX);
+
+            int position = 0;
+            while (position < inflatedLength) {
+                int read = inflater.inflate(inflated, position, inflatedLength - position);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                position += read;
+            }
+            if (position != inflatedLength)
+                throw new InvalidMessageException("Received compressed message inflated to " + position + " bytes instead of " + inflatedLength);
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new InvalidMessageException("Received compressed message is corrupt: " + e.getMessage());
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) inflater.end();
+        }
+    }
+
+    /**
+     * Frames a compressed payload held in a pooled buffer
+     */
+    @FunctionalInterface
+    public interface Framer {
+        byte[] frame(byte[] compressed, int length);
+    }
+
+    private static final class Compressor {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        private byte[] buffer = new byte[0];
+
+        /**
+         * @return the length of the compressed payload in the buffer, or -1 if it is not smaller than the payload itself
+         */
+        private int compress(byte[] payload) {
+            int limit = payload.length - 1;
+            if (limit <= LENGTH_PREFIX) return -1;
+            if (buffer.length < limit) buffer = new byte[limit];
+
+            buffer[0] = (byte) (payload.length >>> 24);
+            buffer[1] = (byte) (payload.length >>> 16);
+            buffer[2] = (byte) (payload.length >>> 8);
+            buffer[3] = (byte) payload.length;
+
+            deflater.setInput(payload);
+            deflater.finish();
+
+            int position = LENGTH_PREFIX;
+            while (!deflater.finished() && position < limit) {
+                position += deflater.deflate(buffer, position, limit - position);
+            }
+            return deflater.finished() ? position : -1;
+        }
+
+        private void release() {
+            deflater.reset();
+            if (buffer.length > MAX_POOLED_BUFFER) buffer = new byte[0];
+            if (!COMPRESSORS.offer(this)) deflater.end();
+        }
+    }
+}
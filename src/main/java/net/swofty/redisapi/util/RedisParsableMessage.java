@@ -1,8 +1,8 @@
 package net.swofty.redisapi.util;
 
-import lombok.Getter;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,15 +11,39 @@ import java.util.UUID;
 
 /**
  * This utility class is used for sending JSONObjects over Redis instead of working with raw Strings.
+ * <p>
+ * Parsed messages are lazy, they keep the text they were received as and only decode the fields that are read, so a
+ * handler that routes on a few fields never pays for the rest of the message. The JSONObject tree is only built once
+ * {@link #getJson()} is called. Compared to parsing the whole message up front this means:
+ * <ul>
+ *     <li>malformed parts of a message are reported with a {@link org.json.JSONException} by the getter that reaches
+ *     them or by {@link #getJson()}, not by {@link #parse(String)}</li>
+ *     <li>a getter reading a key that appears twice returns its first value, while {@link #getJson()} rejects the
+ *     duplicate</li>
+ * </ul>
  */
-@Getter
 public class RedisParsableMessage {
-    private final JSONObject json;
+    /**
+     * The text the message was parsed from, or null if it was built from a JSONObject
+     */
+    private final String source;
+    private final int start;
+    private final int end;
+    private volatile JSONObject json;
 
     protected RedisParsableMessage(JSONObject json) {
+        this.source = null;
+        this.start = 0;
+        this.end = 0;
         this.json = json;
     }
 
+    private RedisParsableMessage(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
     /**
      * Builds a new RedisParsableMessage from a JSONObject.
      *
@@ -41,28 +65,53 @@ public class RedisParsableMessage {
     }
 
     /**
-     * Parse a RedisParsableMessage from a raw String.
+     * Parse a RedisParsableMessage from a raw String, with or without the filter id in front of it.
+     *
+     * Only the start of the text is checked here, the rest is checked as it is read.
      *
      * @param raw The raw String to parse.
      * @return The parsed RedisParsableMessage.
-     * @throws IllegalArgumentException if the raw String is not a valid JSONObject.
+     * @throws org.json.JSONException if the raw String does not hold a JSON object.
      */
     public static RedisParsableMessage parse(String raw) {
-        String toParse = raw;
-        if (raw.contains(";")) {
-            String[] split = raw.split(";");
-            toParse = split[1];
+        int start = 0;
+        // Strip the filter id of messages that still have it, the JSON itself may contain the separator
+        if (!raw.startsWith("{")) {
+            int separator = raw.indexOf(';');
+            if (separator >= 0) start = separator + 1;
         }
-        return new RedisParsableMessage(new JSONObject(toParse));
+
+        int first = start;
+        while (first < raw.length() && Character.isWhitespace(raw.charAt(first))) first++;
+        // Anything but an object is rejected right away by the full parse
+        if (first >= raw.length() || raw.charAt(first) != '{') return new RedisParsableMessage(new JSONObject(raw.substring(start)));
+        return new RedisParsableMessage(raw, first, raw.length());
     }
 
     /**
-     * Formats the JSONObject into a String to send over Redis, this is the same as {@link #json#toString()}.
+     * Builds the JSONObject tree of the message on the first call, changes made to it are kept when formatting.
+     *
+     * @return The JSONObject of the message.
+     * @throws org.json.JSONException if the text of the message is not a valid JSON object, or holds a key twice.
+     */
+    public JSONObject getJson() {
+        JSONObject parsed = json;
+        if (parsed == null) {
+            parsed = new JSONObject(source.substring(start, end));
+            json = parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * Formats the JSONObject into a String to send over Redis, this is the same as {@link #json#toString()}. Parsed
+     * messages whose tree was never built are returned as the text they were parsed from.
      *
      * @return The formatted String.
      */
     public String formatForSend() {
-        return json.toString();
+        JSONObject parsed = json;
+        return parsed != null ? parsed.toString() : source.substring(start, end);
     }
 
     @Override
@@ -79,7 +128,18 @@ public class RedisParsableMessage {
      * @return The object.
      */
     public <T> T get(String key, T defaultValue) {
-        return json.has(key) ? (T) json.get(key) : defaultValue;
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return defaultValue;
+        if (at >= 0) {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0) {
+                if (source.charAt(at) == '"') return (T) JsonScanner.readString(source, at, valueEnd);
+                return (T) new JSONTokener(source.substring(at, valueEnd)).nextValue();
+            }
+        }
+
+        JSONObject parsed = getJson();
+        return parsed.has(key) ? (T) parsed.get(key) : defaultValue;
     }
 
     /*
@@ -96,15 +156,125 @@ public class RedisParsableMessage {
         return UUID.fromString(get(key, ""));
     }
 
+    /**
+     * Get an int from the JSONObject without boxing it.
+     *
+     * @param key          The key to get the int from.
+     * @param defaultValue The default value to return if the key is not found or is not a number.
+     * @return The int.
+     */
+    public int getInt(String key, int defaultValue) {
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return defaultValue;
+        if (at >= 0) {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0 && JsonScanner.isInteger(source, at, valueEnd, 9)) return (int) JsonScanner.readInteger(source, at, valueEnd);
+        }
+        return getJson().optInt(key, defaultValue);
+    }
+
+    /**
+     * Get a long from the JSONObject without boxing it.
+     *
+     * @param key          The key to get the long from.
+     * @param defaultValue The default value to return if the key is not found or is not a number.
+     * @return The long.
+     */
+    public long getLong(String key, long defaultValue) {
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return defaultValue;
+        if (at >= 0) {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0 && JsonScanner.isInteger(source, at, valueEnd, 18)) return JsonScanner.readInteger(source, at, valueEnd);
+        }
+        return getJson().optLong(key, defaultValue);
+    }
+
+    /**
+     * Get a double from the JSONObject without boxing it.
+     *
+     * @param key          The key to get the double from.
+     * @param defaultValue The default value to return if the key is not found or is not a number.
+     * @return The double.
+     */
+    public double getDouble(String key, double defaultValue) {
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return defaultValue;
+        if (at >= 0) {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0 && JsonScanner.isNumber(source, at, valueEnd)) {
+                try {
+                    return Double.parseDouble(source.substring(at, valueEnd));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return getJson().optDouble(key, defaultValue);
+    }
+
+    /**
+     * Get a nested object as a message of its own, the nested object is only decoded once its fields are read. Until
+     * the tree of this message is built the nested message is a separate copy, so changes made to one are not seen
+     * by the other, nested objects that are modified should be taken from {@link #getJson()} instead.
+     *
+     * @param key The key to get the nested object from.
+     * @return The nested message, or null if the key is not found or is not an object.
+     */
+    public RedisParsableMessage getMessage(String key) {
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return null;
+        if (at >= 0) {
+            if (source.charAt(at) != '{') return null;
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0) return new RedisParsableMessage(source, at, valueEnd);
+        }
+
+        JSONObject nested = getJson().optJSONObject(key);
+        return nested == null ? null : from(nested);
+    }
+
     public JSONArray getJsonArray(String key) {
-        return json.has(key) ? json.getJSONArray(key) : new JSONArray();
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return new JSONArray();
+        if (at >= 0 && source.charAt(at) == '[') {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd >= 0) return new JSONArray(source.substring(at, valueEnd));
+        }
+
+        JSONObject parsed = getJson();
+        return parsed.has(key) ? parsed.getJSONArray(key) : new JSONArray();
     }
 
     public List<String> getStringList(String key) {
-        return json.has(key) ? json.getJSONArray(key).toList().stream().map(String::valueOf).toList() : new ArrayList<>();
+        JSONArray array = getJsonArray(key);
+        List<String> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            list.add(String.valueOf(array.get(i)));
+        }
+        return list;
     }
 
     public boolean getBoolean(String key) {
-        return json.has(key) && json.getBoolean(key);
+        int at = find(key);
+        if (at == JsonScanner.ABSENT) return false;
+        if (at >= 0) {
+            int valueEnd = JsonScanner.skipValue(source, at, end);
+            if (valueEnd - at == 4 && source.startsWith("true", at)) return true;
+            if (valueEnd - at == 5 && source.startsWith("false", at)) return false;
+        }
+
+        JSONObject parsed = getJson();
+        return parsed.has(key) && parsed.getBoolean(key);
+    }
+
+    /**
+     * Looks a field up in the text of the message while its tree is not built, the tree is used once it is.
+     *
+     * @return the index the value of the field starts at, {@link JsonScanner#ABSENT}, or {@link JsonScanner#MALFORMED}
+     * if the tree has to be used
+     */
+    private int find(String key) {
+        if (json != null) return JsonScanner.MALFORMED;
+        return JsonScanner.find(source, start, end, key);
     }
 }
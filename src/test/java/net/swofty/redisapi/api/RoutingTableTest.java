@@ -0,0 +1,75 @@
+package net.swofty.redisapi.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingTableTest {
+    @Test
+    void routesByNameAndByBytes() {
+        Map<String, RedisChannel> routes = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            routes.put("channel-" + i, new RedisChannel("channel-" + i));
+        }
+        // Names sharing a hash land in the same slot and are told apart by probing
+        routes.put("Aa", new RedisChannel("Aa"));
+        routes.put("BB", new RedisChannel("BB"));
+        RoutingTable table = RoutingTable.of(routes);
+
+        routes.forEach((name, channel) -> {
+            assertSame(channel, table.get(name));
+            assertSame(channel, table.get(name.getBytes(StandardCharsets.UTF_8)));
+            assertTrue(table.contains(name));
+        });
+    }
+
+    @Test
+    void routesSeveralNamesToOneChannel() {
+        RedisChannel channel = new RedisChannel("orders");
+        RoutingTable table = RoutingTable.of(Map.of("orders", channel, "{shard}orders", channel));
+
+        assertSame(channel, table.get("{shard}orders".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, table.names().length);
+        assertEquals(2, table.channels().size());
+    }
+
+    @Test
+    void missesUnknownNames() {
+        RoutingTable table = RoutingTable.of(Map.of("ünïcode", new RedisChannel("ünïcode")));
+
+        assertNull(table.get("unicode"));
+        assertNull(table.get("unicode".getBytes(StandardCharsets.UTF_8)));
+        assertNull(table.get("ünïcode".getBytes(StandardCharsets.ISO_8859_1)));
+        assertFalse(table.contains("unicode"));
+    }
+
+    @Test
+    void emptyTablesAreShared() {
+        RoutingTable table = RoutingTable.of(Map.of());
+
+        assertSame(RoutingTable.EMPTY, table);
+        assertNull(table.get("channel"));
+        assertNull(table.get("channel".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(new String[0], table.names());
+    }
+
+    @Test
+    void isNotChangedByTheMapItWasBuiltFrom() {
+        Map<String, RedisChannel> routes = new HashMap<>(Map.of("first", new RedisChannel("first")));
+        RoutingTable table = RoutingTable.of(routes);
+        routes.put("second", new RedisChannel("second"));
+
+        assertEquals(Set.of("first"), Set.of(table.names()));
+        assertNull(table.get("second".getBytes(StandardCharsets.UTF_8)));
+    }
+}
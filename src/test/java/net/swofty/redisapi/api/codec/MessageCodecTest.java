@@ -0,0 +1,94 @@
+package net.swofty.redisapi.api.codec;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCodecTest {
+
+    private static JSONObject sample() {
+        return new JSONObject()
+                .put("name", "Steve é世")
+                .put("count", 12)
+                .put("big", Long.MAX_VALUE)
+                .put("negative", -7)
+                .put("ratio", 0.25)
+                .put("price", new BigDecimal("19.99"))
+                .put("online", true)
+                .put("missing", JSONObject.NULL)
+                .put("tags", new JSONArray().put("a").put(1).put(false))
+                .put("nested", new JSONObject().put("name", "inner").put("count", 3));
+    }
+
+    @Test
+    void jsonCodecRoundTrips() {
+        assertRoundTrips(JsonMessageCodec.INSTANCE);
+    }
+
+    @Test
+    void compactCodecRoundTrips() {
+        assertRoundTrips(CompactMessageCodec.INSTANCE);
+    }
+
+    @Test
+    void compactCodecKeepsBigIntegersIntegral() {
+        BigInteger huge = BigInteger.TWO.pow(100).negate();
+        JSONObject message = new JSONObject().put("huge", huge).put("small", BigInteger.valueOf(Long.MIN_VALUE));
+        JSONObject decoded = decode(message);
+
+        assertEquals(huge, decoded.get("huge"));
+        assertEquals(Long.MIN_VALUE, decoded.get("small"));
+    }
+
+    @Test
+    void compactCodecRefusesMessagesNestedTooDeeply() {
+        assertInstanceOf(JSONObject.class, decode(nested(CompactMessageCodec.MAX_DEPTH, false)));
+        assertThrows(InvalidMessageException.class, () -> decode(nested(CompactMessageCodec.MAX_DEPTH + 1, false)));
+        assertThrows(InvalidMessageException.class, () -> decode(nested(CompactMessageCodec.MAX_DEPTH + 1, true)));
+    }
+
+    @Test
+    void registryFindsTheBuiltInCodecs() {
+        assertSame(JsonMessageCodec.INSTANCE, CodecRegistry.get(JsonMessageCodec.ID));
+        assertSame(CompactMessageCodec.INSTANCE, CodecRegistry.get(CompactMessageCodec.ID));
+    }
+
+    private static void assertRoundTrips(MessageCodec codec) {
+        JSONObject original = sample();
+        byte[] encoded = codec.encode(original);
+
+        // Decoded from the middle of a larger buffer, like a payload read in place from an envelope
+        byte[] buffer = new byte[encoded.length + 10];
+        System.arraycopy(encoded, 0, buffer, 5, encoded.length);
+        JSONObject decoded = codec.decode(buffer, 5, encoded.length);
+
+        assertTrue(original.similar(decoded), () -> original + " was decoded as " + decoded);
+    }
+
+    private static JSONObject decode(JSONObject message) {
+        byte[] encoded = CompactMessageCodec.INSTANCE.encode(message);
+        return CompactMessageCodec.INSTANCE.decode(encoded, 0, encoded.length);
+    }
+
+    /**
+     * @param depth  the amount of objects and arrays nested in one another, including the outer object
+     * @param arrays true to nest arrays inside the outer object instead of objects
+     */
+    private static JSONObject nested(int depth, boolean arrays) {
+        Object inner = arrays ? new JSONArray() : new JSONObject();
+        for (int i = 2; i < depth; i++) {
+            inner = arrays ? new JSONArray().put(inner) : new JSONObject().put("inner", inner);
+        }
+        return new JSONObject().put("inner", inner);
+    }
+}
@@ -0,0 +1,80 @@
+package net.swofty.redisapi.api.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZeros() {
+        assertEquals(new LatencyHistogram.Snapshot(0, 0, 0, 0, 0, 0, 0), new LatencyHistogram().snapshot());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10, snapshot.count());
+        assertEquals(5, snapshot.mean());
+        assertEquals(5, snapshot.p50());
+        assertEquals(9, snapshot.p90());
+        assertEquals(10, snapshot.p99());
+        assertEquals(10, snapshot.max());
+    }
+
+    @Test
+    void percentilesStayWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1_000; value <= 1_000_000; value += 1_000) {
+            histogram.record(value);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1_000, snapshot.count());
+        assertWithin(500_000, snapshot.p50());
+        assertWithin(900_000, snapshot.p90());
+        assertWithin(990_000, snapshot.p99());
+        assertWithin(999_000, snapshot.p999());
+        assertEquals(1_000_000, snapshot.max());
+    }
+
+    @Test
+    void percentilesNeverExceedTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1_000_001, snapshot.p50());
+        assertEquals(1_000_001, snapshot.p999());
+    }
+
+    @Test
+    void negativeDurationsAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.snapshot().count());
+        assertEquals(0, histogram.snapshot().max());
+    }
+
+    @Test
+    void resetDiscardsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123);
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().count());
+        assertEquals(0, histogram.snapshot().max());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // Every power of two is split into 32 buckets
+        assertTrue(Math.abs(actual - expected) <= expected / 32 + 1, () -> actual + " is not within 3% of " + expected);
+    }
+}
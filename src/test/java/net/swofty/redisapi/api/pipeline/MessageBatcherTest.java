@@ -0,0 +1,169 @@
+package net.swofty.redisapi.api.pipeline;
+
+import net.swofty.redisapi.api.BatchOptions;
+import net.swofty.redisapi.api.ChannelOptions;
+import net.swofty.redisapi.api.RedisChannel;
+import net.swofty.redisapi.util.MessageEnvelope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageBatcherTest {
+    private final BlockingQueue<MessageBatcher.Batch> flushed = new LinkedBlockingQueue<>();
+    private final MessageBatcher batcher = new MessageBatcher(batch -> {
+        flushed.add(batch);
+        batch.completeWith(CompletableFuture.completedFuture(null));
+    });
+
+    @AfterEach
+    void close() {
+        batcher.close();
+    }
+
+    @Test
+    void flushesOnceTheBatchIsFull() {
+        RedisChannel channel = channel(BatchOptions.builder().maxMessages(3).linger(Duration.ofHours(1)).build());
+
+        CompletableFuture<Void> first = add(channel, "all", 0, "a");
+        add(channel, "all", 0, "b");
+        assertTrue(flushed.isEmpty());
+        assertFalse(first.isDone());
+
+        add(channel, "all", 0, "c");
+        assertPacked(flushed.poll(), "a", "b", "c");
+        assertTrue(first.isDone());
+        assertEquals(0, batcher.getQueuedCount());
+    }
+
+    @Test
+    void flushesOnceTheByteLimitIsReached() {
+        // Every message takes its length plus a length prefix, "a" and "bb" fill the batch exactly
+        RedisChannel channel = channel(BatchOptions.builder().maxBytes(2 * MessageEnvelope.BATCH_LENGTH_BYTES + 3).linger(Duration.ofHours(1)).build());
+
+        add(channel, "all", 0, "a");
+        add(channel, "all", 0, "bb");
+        assertPacked(flushed.poll(), "a", "bb");
+
+        // A message that doesn't fit closes the open batch and starts the next one
+        add(channel, "all", 0, "ccc");
+        add(channel, "all", 0, "dd");
+        assertPacked(flushed.poll(), "ccc");
+        assertEquals(1, batcher.getQueuedCount());
+    }
+
+    @Test
+    void flushesOnceTheLingerExpired() throws InterruptedException {
+        RedisChannel channel = channel(BatchOptions.builder().linger(Duration.ofMillis(20)).build());
+
+        CompletableFuture<Void> future = add(channel, "all", 0, "a");
+        assertPacked(flushed.poll(10, TimeUnit.SECONDS), "a");
+        future.join();
+    }
+
+    @Test
+    void keepsThePublishOrderAcrossBatches() {
+        RedisChannel channel = channel(BatchOptions.builder().linger(Duration.ofHours(1)).build());
+
+        add(channel, "all", 0, "a");
+        add(channel, "all", 0, "b");
+        // Other flags can't share the open batch, which is flushed before the new one
+        add(channel, "all", MessageEnvelope.FLAG_CODEC, "c");
+        add(channel, "all", 0, "d");
+        batcher.flush();
+
+        List<String> order = new ArrayList<>();
+        MessageBatcher.Batch batch;
+        while ((batch = flushed.poll()) != null) {
+            order.addAll(unpack(batch));
+        }
+        assertEquals(List.of("a", "b", "c", "d"), order);
+    }
+
+    @Test
+    void batchesEachFilterIdSeparately() {
+        RedisChannel channel = channel(BatchOptions.builder().linger(Duration.ofHours(1)).build());
+
+        add(channel, "server-1", 0, "a");
+        add(channel, "server-2", 0, "b");
+        add(channel, "server-1", 0, "c");
+        assertEquals(3, batcher.getQueuedCount());
+        batcher.flush();
+
+        List<MessageBatcher.Batch> batches = new ArrayList<>();
+        flushed.drainTo(batches);
+        assertEquals(2, batches.size());
+        for (MessageBatcher.Batch each : batches) {
+            assertEquals(each.getFilterId().equals("server-1") ? List.of("a", "c") : List.of("b"), unpack(each));
+        }
+    }
+
+    @Test
+    void failsTheMessagesOfABatchThatCouldNotBeSent() {
+        MessageBatcher failing = new MessageBatcher(batch -> {
+            throw new IllegalStateException("not sent");
+        });
+        RedisChannel channel = channel(BatchOptions.builder().maxMessages(1).build());
+
+        CompletableFuture<Void> future = failing.add(channel, "all", 0, (byte) 0, new byte[1]);
+        CompletionException thrown = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        failing.close();
+    }
+
+    @Test
+    void closingFlushesAndRefusesNewMessages() {
+        RedisChannel channel = channel(BatchOptions.builder().linger(Duration.ofHours(1)).build());
+
+        CompletableFuture<Void> future = add(channel, "all", 0, "a");
+        batcher.close();
+        assertNotNull(flushed.poll());
+        assertTrue(future.isDone());
+
+        assertThrows(CompletionException.class, () -> add(channel, "all", 0, "b").join());
+        assertNull(flushed.poll());
+    }
+
+    private CompletableFuture<Void> add(RedisChannel channel, String filterId, int flags, String message) {
+        return batcher.add(channel, filterId, flags, (byte) 0, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static RedisChannel channel(BatchOptions batching) {
+        return new RedisChannel("batched", event -> { }, ChannelOptions.builder().batching(batching).build());
+    }
+
+    private static void assertPacked(MessageBatcher.Batch batch, String... messages) {
+        assertNotNull(batch);
+        assertEquals(List.of(messages), unpack(batch));
+    }
+
+    private static List<String> unpack(MessageBatcher.Batch batch) {
+        byte[] packed = batch.pack();
+        List<String> messages = new ArrayList<>();
+        int index = 0;
+        while (index < packed.length) {
+            int length = ((packed[index] & 0xFF) << 24) | ((packed[index + 1] & 0xFF) << 16)
+                    | ((packed[index + 2] & 0xFF) << 8) | (packed[index + 3] & 0xFF);
+            index += MessageEnvelope.BATCH_LENGTH_BYTES;
+            messages.add(new String(packed, index, length, StandardCharsets.UTF_8));
+            index += length;
+        }
+        return messages;
+    }
+}
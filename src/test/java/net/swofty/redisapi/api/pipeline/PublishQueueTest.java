@@ -0,0 +1,186 @@
+package net.swofty.redisapi.api.pipeline;
+
+import net.swofty.redisapi.api.OverflowPolicy;
+import net.swofty.redisapi.exceptions.PublishQueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublishQueueTest {
+    private final PublishQueue queue = new PublishQueue("test-publish", 1, 2, 1024);
+
+    // The first message sent holds the only sender thread until released, the messages behind it stay queued
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        queue.close();
+    }
+
+    @Test
+    void sendsMessagesInOrder() {
+        StringBuilder sent = new StringBuilder();
+        CompletableFuture<Void> first = queue.submit(1, OverflowPolicy.BLOCK, () -> append(sent, "a"));
+        CompletableFuture<Void> second = queue.submit(1, OverflowPolicy.BLOCK, () -> append(sent, "b"));
+
+        second.join();
+        assertTrue(first.isDone());
+        assertEquals("ab", sent.toString());
+        assertEquals(0, queue.getQueuedCount());
+    }
+
+    @Test
+    void failRejectsWhenFull() throws InterruptedException {
+        fill();
+
+        assertThrows(PublishQueueFullException.class, () -> queue.submit(1, OverflowPolicy.FAIL, CompletableFuture::new));
+        assertEquals(1, queue.getRejectedCount());
+    }
+
+    @Test
+    void dropNewestDiscardsTheNewMessage() throws InterruptedException {
+        CompletableFuture<Void> queued = fill();
+
+        CompletableFuture<Void> dropped = queue.submit(1, OverflowPolicy.DROP_NEWEST, CompletableFuture::new);
+        assertFailedWithFullQueue(dropped);
+        assertFalse(queued.isDone());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    @Test
+    void dropOldestDiscardsTheOldestWaitingMessage() throws InterruptedException {
+        CompletableFuture<Void> queued = fill();
+
+        CompletableFuture<Void> newest = queue.submit(1, OverflowPolicy.DROP_OLDEST, () -> CompletableFuture.completedFuture(null));
+        assertFailedWithFullQueue(queued);
+        assertEquals(1, queue.getDroppedCount());
+
+        release.countDown();
+        newest.join();
+    }
+
+    @Test
+    void dropOldestDiscardsTheNewMessageIfEveryMessageIsInFlight() throws InterruptedException {
+        queue.setLimits(1, 1024);
+        queue.submit(1, OverflowPolicy.BLOCK, this::hold);
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        assertFailedWithFullQueue(queue.submit(1, OverflowPolicy.DROP_OLDEST, CompletableFuture::new));
+    }
+
+    @Test
+    void blockWaitsForRoom() throws InterruptedException {
+        fill();
+
+        CompletableFuture<CompletableFuture<Void>> blocked = CompletableFuture.supplyAsync(
+                () -> queue.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null)));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        blocked.join().join();
+    }
+
+    @Test
+    void callbacksCanPublishIntoAFullQueue() throws InterruptedException {
+        CompletableFuture<Void> first = queue.submit(1, OverflowPolicy.BLOCK, this::hold);
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+        queue.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null));
+
+        // The second message only fits once the only sender thread sent the message queued behind the first
+        CompletableFuture<Void> published = first.thenCompose(ignored -> {
+            queue.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null));
+            return queue.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null));
+        });
+
+        release.countDown();
+        assertDoesNotThrow(() -> published.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void completesOnTheGivenExecutor() throws InterruptedException {
+        BlockingQueue<Runnable> completions = new LinkedBlockingQueue<>();
+        try (PublishQueue own = new PublishQueue("test-own", 1, 2, 1024, completions::add)) {
+            CompletableFuture<Void> sent = own.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null));
+
+            Runnable completion = completions.poll(10, TimeUnit.SECONDS);
+            assertFalse(sent.isDone());
+            completion.run();
+            assertTrue(sent.isDone());
+        }
+    }
+
+    @Test
+    void completesInlineOnceTheExecutorRejects() {
+        try (PublishQueue own = new PublishQueue("test-own", 1, 2, 1024, runnable -> {
+            throw new RejectedExecutionException();
+        })) {
+            assertDoesNotThrow(() -> own.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null)).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void capacitySignalsWaitForTheQueueToDrain() throws InterruptedException {
+        fill();
+        CompletableFuture<Void> capacity = queue.onCapacity();
+        assertFalse(capacity.isDone());
+
+        release.countDown();
+        assertDoesNotThrow(() -> capacity.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void byteBudgetIsEnforced() throws InterruptedException {
+        queue.submit(1, OverflowPolicy.BLOCK, this::hold);
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        assertThrows(PublishQueueFullException.class, () -> queue.submit(1024, OverflowPolicy.FAIL, CompletableFuture::new));
+    }
+
+    /**
+     * Fills both slots of the queue, one message being sent and one waiting behind it
+     *
+     * @return the future of the waiting message
+     */
+    private CompletableFuture<Void> fill() throws InterruptedException {
+        queue.submit(1, OverflowPolicy.BLOCK, this::hold);
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+        return queue.submit(1, OverflowPolicy.BLOCK, () -> CompletableFuture.completedFuture(null));
+    }
+
+    private CompletableFuture<Void> hold() {
+        sending.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<Void> append(StringBuilder sent, String message) {
+        sent.append(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void assertFailedWithFullQueue(CompletableFuture<Void> future) {
+        CompletionException thrown = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(PublishQueueFullException.class, thrown.getCause());
+    }
+}
@@ -0,0 +1,186 @@
+package net.swofty.redisapi.api.requests;
+
+import net.swofty.redisapi.api.RedisAPI;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataRequestCorrelatorTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @BeforeAll
+    static void createInstance() {
+        // Metrics are recorded through the instance, which never connects unless something is sent
+        if (RedisAPI.getInstance() == null) RedisAPI.generateInstance("redis://127.0.0.1:6379");
+    }
+
+    @Test
+    void completesWithTheResponse() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<DataResponse> future = DataRequestCorrelator.register(id, TIMEOUT);
+
+        assertTrue(DataRequestCorrelator.complete(id, "server-1", () -> new JSONObject().put("value", 1), DataResponse.Status.OK));
+        DataResponse response = future.join();
+        assertEquals(1, response.data().getInt("value"));
+        assertEquals("server-1", response.responder());
+        assertEquals(DataResponse.Status.OK, response.status());
+    }
+
+    @Test
+    void dropsLateAndUnknownResponsesWithoutDecodingThem() {
+        String id = UUID.randomUUID().toString();
+        DataRequestCorrelator.register(id, TIMEOUT);
+        DataRequestCorrelator.complete(id, null, JSONObject::new, DataResponse.Status.OK);
+
+        assertFalse(DataRequestCorrelator.complete(id, null, () -> {
+            throw new AssertionError("The data of a dropped response was decoded");
+        }, DataResponse.Status.OK));
+        assertFalse(DataRequestCorrelator.complete(UUID.randomUUID().toString(), null, () -> {
+            throw new AssertionError("The data of a dropped response was decoded");
+        }, DataResponse.Status.OK));
+    }
+
+    @Test
+    void timesOutWithoutData() {
+        String id = UUID.randomUUID().toString();
+        DataResponse response = DataRequestCorrelator.register(id, Duration.ofMillis(20)).join();
+
+        assertNull(response.data());
+        assertFalse(DataRequestCorrelator.complete(id, null, JSONObject::new, DataResponse.Status.OK));
+    }
+
+    @Test
+    void cancellingReleasesTheRequest() {
+        String id = UUID.randomUUID().toString();
+        DataRequestCorrelator.register(id, TIMEOUT).cancel(false);
+
+        assertFalse(DataRequestCorrelator.complete(id, null, JSONObject::new, DataResponse.Status.OK));
+        // The id can be awaited again once released
+        DataRequestCorrelator.register(id, TIMEOUT).cancel(false);
+    }
+
+    @Test
+    void rejectsAnIdAlreadyPending() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<DataResponse> future = DataRequestCorrelator.register(id, TIMEOUT);
+
+        assertThrows(IllegalStateException.class, () -> DataRequestCorrelator.register(id, TIMEOUT));
+        future.cancel(false);
+    }
+
+    @Test
+    void failingCompletesExceptionally() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<DataResponse> future = DataRequestCorrelator.register(id, TIMEOUT);
+        DataRequestCorrelator.fail(id, new IllegalStateException("not published"));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void gathersTheFirstResponses() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.firstN(2, TIMEOUT), null);
+
+        respond(id, "server-1");
+        assertFalse(future.isDone());
+        respond(id, "server-1");
+        GatheredResponses gathered = future.join();
+        assertTrue(gathered.satisfied());
+        assertEquals(2, gathered.responses().size());
+        assertFalse(respond(id, "server-2"));
+    }
+
+    @Test
+    void countsEachResponderOnceWhenWaitingOnAll() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.all(2, TIMEOUT), null);
+
+        respond(id, "server-1");
+        respond(id, "server-1");
+        assertFalse(future.isDone());
+        respond(id, "server-2");
+        GatheredResponses gathered = future.join();
+        assertTrue(gathered.satisfied());
+        assertEquals(List.of("server-1", "server-1", "server-2"), gathered.responses().stream().map(DataResponse::responder).toList());
+    }
+
+    @Test
+    void onlyCountsTheNamedResponders() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id,
+                GatherPolicy.all(List.of("server-1", "server-2"), TIMEOUT), null);
+
+        respond(id, "server-1");
+        respond(id, "server-3");
+        respond(id, null);
+        assertFalse(future.isDone());
+        respond(id, "server-2");
+        assertEquals(4, future.join().responses().size());
+    }
+
+    @Test
+    void completesOnceAQuorumAnswered() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.quorum(5, TIMEOUT), null);
+
+        respond(id, "server-1");
+        respond(id, "server-2");
+        assertFalse(future.isDone());
+        respond(id, "server-3");
+        assertTrue(future.join().satisfied());
+    }
+
+    @Test
+    void returnsWhatWasCollectedAtTheDeadline() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.all(3, Duration.ofMillis(50)), null);
+
+        respond(id, "server-1");
+        GatheredResponses gathered = future.join();
+        assertFalse(gathered.satisfied());
+        assertEquals(1, gathered.responses().size());
+    }
+
+    @Test
+    void collectsEveryResponseUntilADeadlineOnlyPolicyElapses() {
+        String id = UUID.randomUUID().toString();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.deadline(Duration.ofMillis(50)), null);
+
+        respond(id, "server-1");
+        respond(id, "server-2");
+        assertFalse(future.isDone());
+        GatheredResponses gathered = future.join();
+        assertTrue(gathered.satisfied());
+        assertEquals(2, gathered.responses().size());
+    }
+
+    @Test
+    void neverCallsBackAfterFinishing() {
+        String id = UUID.randomUUID().toString();
+        AtomicInteger callbacks = new AtomicInteger();
+        CompletableFuture<GatheredResponses> future = DataRequestCorrelator.registerGather(id, GatherPolicy.firstN(1, TIMEOUT),
+                response -> callbacks.incrementAndGet());
+
+        respond(id, "server-1");
+        future.join();
+        respond(id, "server-2");
+        assertEquals(1, callbacks.get());
+    }
+
+    private static boolean respond(String id, String responder) {
+        return DataRequestCorrelator.complete(id, responder, JSONObject::new, DataResponse.Status.OK);
+    }
+}
@@ -0,0 +1,31 @@
+package net.swofty.redisapi.api.requests;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DataRequestTest {
+
+    @Test
+    void canonicalFormDoesNotDependOnInsertionOrder() {
+        // "Aa" and "BB" share a hash code, so the text of the objects follows the order the keys were put in
+        JSONObject first = new JSONObject().put("Aa", 1).put("BB", new JSONObject().put("Aa", true).put("BB", "text"));
+        JSONObject second = new JSONObject().put("BB", new JSONObject().put("BB", "text").put("Aa", true)).put("Aa", 1);
+        assertNotEquals(first.toString(), second.toString());
+
+        assertEquals("{\"Aa\":1,\"BB\":{\"Aa\":true,\"BB\":\"text\"}}", DataRequest.canonicalForm(first));
+        assertEquals(DataRequest.canonicalForm(first), DataRequest.canonicalForm(second));
+    }
+
+    @Test
+    void canonicalFormKeepsArrayOrder() {
+        JSONObject first = new JSONObject().put("list", new JSONArray().put(1).put(new JSONObject().put("b", 1).put("a", 2)));
+        JSONObject second = new JSONObject().put("list", new JSONArray().put(new JSONObject().put("a", 2).put("b", 1)).put(1));
+
+        assertEquals("{\"list\":[1,{\"a\":2,\"b\":1}]}", DataRequest.canonicalForm(first));
+        assertNotEquals(DataRequest.canonicalForm(first), DataRequest.canonicalForm(second));
+    }
+}
@@ -0,0 +1,98 @@
+package net.swofty.redisapi.api.requests;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+    private static final Duration TTL = Duration.ofMillis(100);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ResultCache<String, String> cache = new ResultCache<>(16, result -> !result.equals("uncacheable"));
+
+    @Test
+    void sharesAComputationInFlight() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.get("key", TTL, () -> load(pending));
+        CompletableFuture<String> second = cache.get("key", TTL, () -> load(new CompletableFuture<>()));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        pending.complete("value");
+        assertEquals("value", second.join());
+    }
+
+    @Test
+    void keepsTheResultUntilItExpires() throws InterruptedException {
+        cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("value"))).join();
+        assertEquals("value", cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("other"))).join());
+        assertEquals(1, loads.get());
+
+        Thread.sleep(TTL.toMillis() * 2);
+        assertEquals("other", cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("other"))).join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void onlySharesWhileInFlightWithoutATtl() {
+        cache.get("key", Duration.ZERO, () -> load(CompletableFuture.completedFuture("value"))).join();
+        cache.get("key", Duration.ZERO, () -> load(CompletableFuture.completedFuture("value"))).join();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void dropsResultsThatAreNotCacheable() {
+        cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("uncacheable"))).join();
+        assertEquals("value", cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("value"))).join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aCompletedResultIsNeverSeenWithoutItsExpiry() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<CompletableFuture<String>> seenOnCompletion = new CompletableFuture<>();
+
+        // Callbacks of the caller run as soon as the result is in, before anything registered on the future earlier
+        cache.get("key", TTL, () -> load(pending))
+                .thenRun(() -> seenOnCompletion.complete(cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("value")))));
+        pending.complete("uncacheable");
+
+        assertEquals("value", seenOnCompletion.join().join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void dropsFailures() {
+        CompletableFuture<String> failed = cache.get("key", TTL, () -> load(CompletableFuture.failedFuture(new IllegalStateException())));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("value", cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("value"))).join());
+    }
+
+    @Test
+    void invalidationForgetsTheResult() {
+        cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("value"))).join();
+        cache.invalidate("key");
+        assertEquals("other", cache.get("key", TTL, () -> load(CompletableFuture.completedFuture("other"))).join());
+    }
+
+    @Test
+    void computesWithoutSharingOnceFull() {
+        ResultCache<Integer, String> small = new ResultCache<>(1, result -> true);
+        small.get(1, TTL, () -> new CompletableFuture<>());
+
+        CompletableFuture<String> unshared = small.get(2, TTL, () -> CompletableFuture.completedFuture("value"));
+        assertEquals("value", unshared.join());
+        assertTrue(small.get(2, TTL, () -> new CompletableFuture<>()) != unshared);
+    }
+
+    private CompletableFuture<String> load(CompletableFuture<String> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+}
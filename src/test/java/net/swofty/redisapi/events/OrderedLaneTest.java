@@ -0,0 +1,98 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.api.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedLaneTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void aTaskCanSubmitIntoItsOwnFullLane() throws InterruptedException {
+        OrderedLane lane = new OrderedLane(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        lane.submit(() -> {
+            await(release);
+            order.add("handler");
+            try {
+                // Like a handler publishing to its own channel with loopback while the lane is full
+                lane.submit(() -> {
+                    order.add("published");
+                    done.countDown();
+                }, OverflowPolicy.BLOCK, executor);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, OverflowPolicy.BLOCK, executor);
+        lane.submit(() -> order.add("queued"), OverflowPolicy.BLOCK, executor);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("handler", "queued", "published"), order);
+    }
+
+    @Test
+    void otherThreadsStillWaitForRoom() throws InterruptedException {
+        OrderedLane lane = new OrderedLane(1);
+        CountDownLatch release = new CountDownLatch(1);
+        lane.submit(() -> await(release), OverflowPolicy.BLOCK, executor);
+        lane.submit(() -> { }, OverflowPolicy.BLOCK, executor);
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                lane.submit(() -> { }, OverflowPolicy.BLOCK, executor);
+                submitted.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void discardsWhatDoesNotFit() throws InterruptedException {
+        OrderedLane lane = new OrderedLane(2);
+        CountDownLatch release = new CountDownLatch(1);
+        lane.submit(() -> await(release), OverflowPolicy.BLOCK, executor);
+        lane.submit(() -> { }, OverflowPolicy.BLOCK, executor);
+        lane.submit(() -> { }, OverflowPolicy.BLOCK, executor);
+
+        assertFalse(lane.submit(() -> { }, OverflowPolicy.DROP_NEWEST, executor));
+        assertTrue(lane.submit(() -> { }, OverflowPolicy.DROP_OLDEST, executor));
+        assertEquals(2, lane.size());
+        assertEquals(2, lane.dropped());
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
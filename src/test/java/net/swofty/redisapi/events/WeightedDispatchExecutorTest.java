@@ -0,0 +1,118 @@
+package net.swofty.redisapi.events;
+
+import net.swofty.redisapi.api.ChannelPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedDispatchExecutorTest {
+    private final WeightedDispatchExecutor executor = new WeightedDispatchExecutor("test-dispatch", 1);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesTheThreadsByWeight() throws InterruptedException {
+        int perPriority = 100;
+        List<ChannelPriority> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = queueBehindBlocker(perPriority, order);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // While every queue has work waiting, one round of 21 tasks is 16 high, 4 normal and 1 bulk
+        int round = 0;
+        for (ChannelPriority priority : ChannelPriority.values()) {
+            round += priority.getWeight();
+        }
+        Map<ChannelPriority, Integer> counts = new EnumMap<>(ChannelPriority.class);
+        for (ChannelPriority priority : order.subList(0, round)) {
+            counts.merge(priority, 1, Integer::sum);
+        }
+        for (ChannelPriority priority : ChannelPriority.values()) {
+            assertEquals(priority.getWeight(), counts.getOrDefault(priority, 0), priority.name());
+        }
+        assertEquals(3 * perPriority, order.size());
+    }
+
+    @Test
+    void bulkIsNotStarvedByABacklogOfHighPriorityTasks() throws InterruptedException {
+        List<ChannelPriority> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(101);
+        CountDownLatch release = occupyThread();
+
+        for (int i = 0; i < 100; i++) {
+            executor.forPriority(ChannelPriority.HIGH).execute(record(order, ChannelPriority.HIGH, done));
+        }
+        executor.forPriority(ChannelPriority.BULK).execute(record(order, ChannelPriority.BULK, done));
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        int bulkIndex = order.indexOf(ChannelPriority.BULK);
+        assertTrue(bulkIndex >= 0 && bulkIndex <= ChannelPriority.HIGH.getWeight(), "bulk ran at index " + bulkIndex);
+    }
+
+    @Test
+    void rejectsTasksOnceShutDown() {
+        executor.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+    }
+
+    /**
+     * Queues the tasks while the only thread is busy, so they are all waiting when it starts picking
+     */
+    private CountDownLatch queueBehindBlocker(int perPriority, List<ChannelPriority> order) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(perPriority * ChannelPriority.values().length);
+        CountDownLatch release = occupyThread();
+
+        for (int i = 0; i < perPriority; i++) {
+            for (ChannelPriority priority : ChannelPriority.values()) {
+                executor.forPriority(priority).execute(record(order, priority, done));
+            }
+        }
+        release.countDown();
+        return done;
+    }
+
+    /**
+     * @return latch releasing the only thread, which is busy once this returns
+     */
+    private CountDownLatch occupyThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static Runnable record(List<ChannelPriority> order, ChannelPriority priority, CountDownLatch done) {
+        return () -> {
+            order.add(priority);
+            done.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
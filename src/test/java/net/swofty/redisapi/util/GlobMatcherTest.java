@@ -0,0 +1,119 @@
+package net.swofty.redisapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobMatcherTest {
+    @Test
+    void matchesWildcards() {
+        GlobMatcher<String> matcher = new GlobMatcher<>(Map.of(
+                "news.*", "star",
+                "news.?", "any",
+                "*", "everything",
+                "news.sport", "literal"));
+
+        assertEquals(Set.of("star", "everything", "literal"), Set.copyOf(matcher.match("news.sport")));
+        assertEquals(Set.of("star", "any", "everything"), Set.copyOf(matcher.match("news.x")));
+        assertEquals(Set.of("star", "everything"), Set.copyOf(matcher.match("news.")));
+        assertEquals(List.of("everything"), matcher.match(""));
+    }
+
+    @Test
+    void matchesCharacterClasses() {
+        GlobMatcher<String> matcher = new GlobMatcher<>(Map.of(
+                "h[ae]llo", "set",
+                "h[^e]llo", "negated",
+                "h[a-c]llo", "range",
+                "h[z-x]llo", "reversed range"));
+
+        assertEquals(Set.of("set", "negated", "range"), Set.copyOf(matcher.match("hallo")));
+        assertEquals(Set.of("set"), Set.copyOf(matcher.match("hello")));
+        assertEquals(Set.of("negated", "reversed range"), Set.copyOf(matcher.match("hyllo")));
+    }
+
+    @Test
+    void matchesEscapedCharactersLiterally() {
+        GlobMatcher<String> matcher = new GlobMatcher<>(Map.of("a\\*b", "escaped", "a[\\]]b", "class"));
+
+        assertEquals(List.of("escaped"), matcher.match("a*b"));
+        assertTrue(matcher.match("axb").isEmpty());
+        assertEquals(List.of("class"), matcher.match("a]b"));
+    }
+
+    @Test
+    void returnsTheValueOfEveryPatternSharingAPrefix() {
+        GlobMatcher<Integer> matcher = new GlobMatcher<>(Map.of("user.*.login", 1, "user.*", 2, "user.*.*", 3, "user.**", 4));
+
+        assertEquals(Set.of(1, 2, 3, 4), Set.copyOf(matcher.match("user.42.login")));
+        assertEquals(Set.of(2, 4), Set.copyOf(matcher.match("user.42")));
+    }
+
+    @Test
+    void rejectsUnterminatedClasses() {
+        assertThrows(IllegalArgumentException.class, () -> new GlobMatcher<>(Map.of("news.[ab", 1)));
+    }
+
+    @Test
+    void agreesWithMatchingEachPatternInTurn() {
+        Random random = new Random(42);
+        String alphabet = "ab.";
+        String[] pieces = {"a", "b", ".", "*", "?", "[ab]", "[^a]", "[a-b]"};
+
+        for (int round = 0; round < 50; round++) {
+            Map<String, String> patterns = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                StringBuilder pattern = new StringBuilder();
+                for (int j = random.nextInt(6); j >= 0; j--) {
+                    pattern.append(pieces[random.nextInt(pieces.length)]);
+                }
+                patterns.put(pattern.toString(), pattern.toString());
+            }
+            GlobMatcher<String> matcher = new GlobMatcher<>(patterns);
+
+            for (int i = 0; i < 50; i++) {
+                StringBuilder channel = new StringBuilder();
+                for (int j = random.nextInt(8); j > 0; j--) {
+                    channel.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+
+                Set<String> expected = new HashSet<>();
+                for (String pattern : patterns.keySet()) {
+                    if (toRegex(pattern).matcher(channel).matches()) expected.add(pattern);
+                }
+                assertEquals(expected, new HashSet<>(matcher.match(channel.toString())), channel.toString());
+            }
+        }
+    }
+
+    /**
+     * Translates the patterns generated by the test, which never contain escapes, into a regular expression
+     */
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '[' -> {
+                    int end = glob.indexOf(']', i);
+                    regex.append(glob, i, end + 1);
+                    i = end;
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,81 @@
+package net.swofty.redisapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonScannerTest {
+    private static final String OBJECT = "{ \"id\" : \"abc\", \"nested\": {\"id\": [1, \"}\"]}, \"count\": -42, \"ratio\": 1.5e3, \"ok\": true }";
+
+    @Test
+    void findsTopLevelFieldsOnly() {
+        int id = JsonScanner.find(OBJECT, 0, OBJECT.length(), "id");
+        assertEquals(OBJECT.indexOf("\"abc\""), id);
+
+        // The nested id is skipped along with its object, including the brace inside a string
+        int nested = JsonScanner.find(OBJECT, 0, OBJECT.length(), "nested");
+        int nestedEnd = JsonScanner.skipValue(OBJECT, nested, OBJECT.length());
+        assertEquals("{\"id\": [1, \"}\"]}", OBJECT.substring(nested, nestedEnd));
+
+        assertEquals(JsonScanner.ABSENT, JsonScanner.find(OBJECT, 0, OBJECT.length(), "missing"));
+        assertEquals(JsonScanner.ABSENT, JsonScanner.find("{}", 0, 2, "id"));
+    }
+
+    @Test
+    void readsValues() {
+        int count = JsonScanner.find(OBJECT, 0, OBJECT.length(), "count");
+        int countEnd = JsonScanner.skipValue(OBJECT, count, OBJECT.length());
+        assertTrue(JsonScanner.isInteger(OBJECT, count, countEnd, 18));
+        assertEquals(-42, JsonScanner.readInteger(OBJECT, count, countEnd));
+
+        int ratio = JsonScanner.find(OBJECT, 0, OBJECT.length(), "ratio");
+        int ratioEnd = JsonScanner.skipValue(OBJECT, ratio, OBJECT.length());
+        assertFalse(JsonScanner.isInteger(OBJECT, ratio, ratioEnd, 18));
+        assertTrue(JsonScanner.isNumber(OBJECT, ratio, ratioEnd));
+
+        int ok = JsonScanner.find(OBJECT, 0, OBJECT.length(), "ok");
+        assertEquals("true", OBJECT.substring(ok, JsonScanner.skipValue(OBJECT, ok, OBJECT.length())));
+    }
+
+    @Test
+    void decodesEscapesOnlyWhenPresent() {
+        String text = "{\"plain\":\"abc\",\"escaped\":\"a\\\"b\\u00e9\"}";
+        int plain = JsonScanner.find(text, 0, text.length(), "plain");
+        assertEquals("abc", JsonScanner.readString(text, plain, JsonScanner.skipValue(text, plain, text.length())));
+
+        int escaped = JsonScanner.find(text, 0, text.length(), "escaped");
+        assertEquals("a\"bé", JsonScanner.readString(text, escaped, JsonScanner.skipValue(text, escaped, text.length())));
+    }
+
+    @Test
+    void matchesEscapedKeys() {
+        String text = "{\"k\\u0065y\":1}";
+        assertEquals(text.indexOf(':') + 1, JsonScanner.find(text, 0, text.length(), "key"));
+    }
+
+    @Test
+    void searchesWithinASlice() {
+        String text = "xx{\"id\":1}yy";
+        assertEquals(text.indexOf('1'), JsonScanner.find(text, 2, text.length() - 2, "id"));
+    }
+
+    @Test
+    void reportsWhatItDoesNotUnderstandAsMalformed() {
+        assertEquals(JsonScanner.MALFORMED, JsonScanner.find("[1, 2]", 0, 6, "id"));
+        assertEquals(JsonScanner.MALFORMED, JsonScanner.find("{'id': 1}", 0, 9, "id"));
+        assertEquals(JsonScanner.MALFORMED, JsonScanner.find("{\"a\": 'x', \"id\": 1}", 0, 19, "id"));
+        assertEquals(JsonScanner.MALFORMED, JsonScanner.find("{\"a\": 1", 0, 7, "id"));
+        assertEquals(JsonScanner.MALFORMED, JsonScanner.find("{\"a\" 1}", 0, 7, "id"));
+    }
+
+    @Test
+    void rejectsIntegersThatDoNotFit() {
+        String text = "0123 12345678901234567890 -";
+        assertFalse(JsonScanner.isInteger(text, 0, 4, 18));
+        assertFalse(JsonScanner.isInteger(text, 5, 25, 18));
+        assertFalse(JsonScanner.isInteger(text, 26, 27, 18));
+        assertTrue(JsonScanner.isInteger(text, 0, 1, 18));
+    }
+}
@@ -0,0 +1,98 @@
+package net.swofty.redisapi.util;
+
+import net.swofty.redisapi.api.codec.CodecRegistry;
+import net.swofty.redisapi.api.codec.CompactMessageCodec;
+import net.swofty.redisapi.api.codec.MessageCodec;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageEnvelopeTest {
+    private static final byte[] FILTER = "server-1".getBytes(StandardCharsets.UTF_8);
+    private static final byte CODEC = 7;
+
+    @Test
+    void readsBackEveryHeaderField() {
+        byte[] payload = "hello".getBytes(StandardCharsets.UTF_8);
+        int flags = MessageEnvelope.FLAG_CODEC | MessageEnvelope.FLAG_ORIGIN;
+        byte[] message = MessageEnvelope.encode(FILTER, flags, CODEC, 0x0123456789ABCDEFL, payload, 0, payload.length);
+
+        assertTrue(MessageEnvelope.isFramed(message));
+        assertEquals(MessageEnvelope.VERSION, MessageEnvelope.version(message));
+        assertEquals(flags, MessageEnvelope.flags(message));
+        assertEquals(CODEC, MessageEnvelope.codec(message));
+        assertEquals("server-1", MessageEnvelope.filterId(message));
+        assertTrue(MessageEnvelope.isFromOrigin(message, 0x0123456789ABCDEFL));
+        assertFalse(MessageEnvelope.isFromOrigin(message, 1));
+        assertArrayEquals(payload, Arrays.copyOfRange(message, MessageEnvelope.payloadOffset(message), message.length));
+    }
+
+    @Test
+    void checksTheFilterIdInPlace() {
+        byte[] addressed = MessageEnvelope.encode(FILTER, new byte[0]);
+        byte[] broadcast = MessageEnvelope.encode("all".getBytes(StandardCharsets.UTF_8), new byte[0]);
+
+        assertTrue(MessageEnvelope.isAddressedTo(addressed, FILTER));
+        assertFalse(MessageEnvelope.isAddressedTo(addressed, "server-2".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(MessageEnvelope.isBroadcast(addressed));
+        assertTrue(MessageEnvelope.isAddressedTo(broadcast, null));
+        assertTrue(MessageEnvelope.isBroadcast(broadcast));
+    }
+
+    @Test
+    void legacyTextIsNotFramed() {
+        assertFalse(MessageEnvelope.isFramed("all;hello".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void roundTripsACompressedStructuredMessage() {
+        JSONObject original = new JSONObject()
+                .put("player", "Notch")
+                .put("lore", "a very repetitive line of lore ".repeat(40))
+                .put("level", 42);
+        MessageCodec codec = CodecRegistry.get(CompactMessageCodec.ID);
+        byte[] encoded = codec.encode(original);
+
+        byte[] message = PayloadCompression.compress(encoded, (compressed, length) -> MessageEnvelope.encode(FILTER,
+                MessageEnvelope.FLAG_CODEC | MessageEnvelope.FLAG_COMPRESSED, codec.getId(), compressed, 0, length));
+        assertNotNull(message);
+        assertTrue(message.length < encoded.length);
+        assertTrue((MessageEnvelope.flags(message) & MessageEnvelope.FLAG_COMPRESSED) != 0);
+
+        int offset = MessageEnvelope.payloadOffset(message);
+        byte[] inflated = PayloadCompression.decompress(message, offset, message.length - offset);
+        assertArrayEquals(encoded, inflated);
+
+        JSONObject decoded = CodecRegistry.get(MessageEnvelope.codec(message)).decode(inflated, 0, inflated.length);
+        assertTrue(original.similar(decoded));
+    }
+
+    @Test
+    void unpacksABatchInOrder() {
+        List<byte[]> payloads = List.of(
+                "first".getBytes(StandardCharsets.UTF_8),
+                new byte[0],
+                "third".getBytes(StandardCharsets.UTF_8));
+        byte[] packed = MessageEnvelope.packBatch(payloads, 10);
+        byte[] message = MessageEnvelope.encode(FILTER, MessageEnvelope.FLAG_BATCH, packed, 0, packed.length);
+
+        int index = MessageEnvelope.payloadOffset(message);
+        for (byte[] payload : payloads) {
+            int length = ((message[index] & 0xFF) << 24) | ((message[index + 1] & 0xFF) << 16)
+                    | ((message[index + 2] & 0xFF) << 8) | (message[index + 3] & 0xFF);
+            index += MessageEnvelope.BATCH_LENGTH_BYTES;
+            assertArrayEquals(payload, Arrays.copyOfRange(message, index, index + length));
+            index += length;
+        }
+        assertEquals(message.length, index);
+    }
+}
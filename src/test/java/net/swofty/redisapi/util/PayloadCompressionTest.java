@@ -0,0 +1,42 @@
+package net.swofty.redisapi.util;
+
+import net.swofty.redisapi.exceptions.InvalidMessageException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PayloadCompressionTest {
+
+    @Test
+    void roundTripsACompressiblePayload() {
+        byte[] payload = "{\"state\":\"online\",\"server\":\"lobby-1\"}".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = PayloadCompression.compress(payload, (buffer, length) -> Arrays.copyOf(buffer, length));
+
+        assertNotNull(compressed);
+        assertArrayEquals(payload, PayloadCompression.decompress(compressed, 0, compressed.length));
+    }
+
+    @Test
+    void leavesIncompressiblePayloadsAlone() {
+        byte[] payload = new byte[512];
+        new Random(1).nextBytes(payload);
+
+        assertNull(PayloadCompression.compress(payload, (buffer, length) -> Arrays.copyOf(buffer, length)));
+    }
+
+    @Test
+    void rejectsCorruptPayloads() {
+        byte[] payload = "a repetitive payload ".repeat(50).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = PayloadCompression.compress(payload, (buffer, length) -> Arrays.copyOf(buffer, length));
+
+        assertThrows(InvalidMessageException.class, () -> PayloadCompression.decompress(compressed, 0, 3));
+        assertThrows(InvalidMessageException.class, () -> PayloadCompression.decompress(compressed, 0, compressed.length / 2));
+    }
+}
@@ -0,0 +1,80 @@
+package net.swofty.redisapi.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisParsableMessageTest {
+
+    @Test
+    void readsFieldsWithoutTheFilterId() {
+        RedisParsableMessage message = RedisParsableMessage.parse("server-1;{\"name\":\"a;b\",\"count\":3,\"big\":12345678901,\"ratio\":0.5,\"on\":true,\"tags\":[\"x\",1]}");
+
+        assertEquals("a;b", message.get("name", ""));
+        assertEquals(3, message.getInt("count", 0));
+        assertEquals(12345678901L, message.getLong("big", 0));
+        assertEquals(0.5, message.getDouble("ratio", 0));
+        assertTrue(message.getBoolean("on"));
+        assertEquals(List.of("x", "1"), message.getStringList("tags"));
+        assertEquals("fallback", message.get("missing", "fallback"));
+    }
+
+    @Test
+    void formatsUntouchedMessagesAsReceived() {
+        String text = "{\"b\":1,  \"a\":{\"c\":2}}";
+        assertEquals(text, RedisParsableMessage.parse(text).formatForSend());
+    }
+
+    @Test
+    void keepsChangesMadeToTheTree() {
+        RedisParsableMessage message = RedisParsableMessage.parse("{\"count\":1}");
+        message.getJson().put("count", 2);
+
+        assertEquals(2, message.getInt("count", 0));
+        assertTrue(new JSONObject(message.formatForSend()).similar(new JSONObject().put("count", 2)));
+    }
+
+    @Test
+    void rejectsTextThatIsNotAnObject() {
+        assertThrows(JSONException.class, () -> RedisParsableMessage.parse("[1, 2]"));
+        assertThrows(JSONException.class, () -> RedisParsableMessage.parse("not json"));
+    }
+
+    @Test
+    void reportsMalformedPartsOnceRead() {
+        RedisParsableMessage message = RedisParsableMessage.parse("{\"id\":\"ok\",\"broken\":}");
+
+        assertEquals("ok", message.get("id", ""));
+        assertThrows(JSONException.class, () -> message.get("broken", ""));
+        assertThrows(JSONException.class, message::getJson);
+    }
+
+    @Test
+    void readsTheFirstValueOfADuplicatedKey() {
+        RedisParsableMessage message = RedisParsableMessage.parse("{\"id\":1,\"id\":2}");
+
+        assertEquals(1, message.getInt("id", 0));
+        assertThrows(JSONException.class, message::getJson);
+    }
+
+    @Test
+    void nestedMessagesAreCopiesUntilTheTreeIsBuilt() {
+        RedisParsableMessage message = RedisParsableMessage.parse("{\"data\":{\"count\":1}}");
+        RedisParsableMessage nested = message.getMessage("data");
+        nested.getJson().put("count", 2);
+
+        assertEquals(1, message.getJson().getJSONObject("data").getInt("count"));
+
+        // Once the tree is built, nested messages share it
+        message.getMessage("data").getJson().put("count", 3);
+        assertEquals(3, message.getJson().getJSONObject("data").getInt("count"));
+        assertNull(message.getMessage("missing"));
+    }
+}